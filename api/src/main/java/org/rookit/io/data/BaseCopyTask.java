@@ -0,0 +1,59 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.data;
+
+final class BaseCopyTask implements CopyTask {
+
+    private final DataSource source;
+    private final DataSink sink;
+    private final Object device;
+
+    BaseCopyTask(final DataSource source, final DataSink sink, final Object device) {
+        this.source = source;
+        this.sink = sink;
+        this.device = device;
+    }
+
+    @Override
+    public DataSource source() {
+        return this.source;
+    }
+
+    @Override
+    public DataSink sink() {
+        return this.sink;
+    }
+
+    @Override
+    public Object device() {
+        return this.device;
+    }
+
+    @Override
+    public String toString() {
+        return "BaseCopyTask{" +
+                "source=" + this.source +
+                ", sink=" + this.sink +
+                ", device=" + this.device +
+                "}";
+    }
+}
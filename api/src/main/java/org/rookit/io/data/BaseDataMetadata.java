@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.data;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.OptionalLong;
+
+final class BaseDataMetadata implements DataMetadata {
+
+    static final DataMetadata ABSENT = new BaseDataMetadata(false, OptionalLong.empty(), Optional.empty());
+
+    private final boolean exists;
+    private final OptionalLong size;
+    private final Optional<Instant> lastModified;
+
+    @SuppressWarnings({"OptionalUsedAsFieldOrParameterType", "AssignmentToOptionalField"})
+    BaseDataMetadata(final boolean exists, final OptionalLong size, final Optional<Instant> lastModified) {
+        this.exists = exists;
+        this.size = size;
+        this.lastModified = lastModified;
+    }
+
+    @Override
+    public boolean exists() {
+        return this.exists;
+    }
+
+    @Override
+    public OptionalLong size() {
+        return this.size;
+    }
+
+    @Override
+    public Optional<Instant> lastModified() {
+        return this.lastModified;
+    }
+
+    @Override
+    public String toString() {
+        return "BaseDataMetadata{" +
+                "exists=" + this.exists +
+                ", size=" + this.size +
+                ", lastModified=" + this.lastModified +
+                "}";
+    }
+}
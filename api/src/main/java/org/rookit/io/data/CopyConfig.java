@@ -0,0 +1,67 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.data;
+
+import org.immutables.value.Value;
+
+@Value.Immutable
+public interface CopyConfig {
+
+    @Value.Default
+    default int bufferSize() {
+        return 64 * 1024;
+    }
+
+    @Value.Default
+    default int maxPooledBuffers() {
+        return 64;
+    }
+
+    @Value.Default
+    default boolean directBuffers() {
+        return true;
+    }
+
+    /**
+     * Files at least this large are copied through a memory mapping when the sink is not a file.
+     */
+    @Value.Default
+    default long mappedThreshold() {
+        return 1024L * 1024L;
+    }
+
+    @Value.Default
+    default long mappedChunkSize() {
+        return 16L * 1024L * 1024L;
+    }
+
+    @Value.Default
+    default int parallelism() {
+        return 32;
+    }
+
+    @Value.Default
+    default int perDeviceParallelism() {
+        return 8;
+    }
+
+}
@@ -21,7 +21,14 @@
  ******************************************************************************/
 package org.rookit.io.data;
 
+import io.reactivex.Scheduler;
+
 @SuppressWarnings("javadoc")
 public interface DataBucket extends DataSource, DataSink {
 
+    @Override
+    default Scheduler scheduler() {
+        return DataSource.super.scheduler();
+    }
+
 }
@@ -1,9 +1,23 @@
 package org.rookit.io.data;
 
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+
 import java.io.Closeable;
+import java.util.Map;
 
 public interface DataBucketFactory<E> extends Closeable {
 
     DataBucket create(E source);
 
+    /**
+     * Copies every source into the bucket created for its key. Copies overlap, and failures are reported together
+     * once every copy is done.
+     */
+    default Completable copyAll(final Map<E, ? extends DataSource> sources) {
+        return Flowable.fromIterable(sources.entrySet())
+                .flatMapCompletable(entry -> create(entry.getKey()).copyFrom(entry.getValue()),
+                        true, Runtime.getRuntime().availableProcessors());
+    }
+
 }
@@ -22,16 +22,27 @@
 package org.rookit.io.data;
 
 import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Scheduler;
 import io.reactivex.Single;
 import io.reactivex.functions.Consumer;
 import io.reactivex.functions.Function;
+import io.reactivex.schedulers.Schedulers;
 
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
 
 public interface DataSink {
 
+    default Scheduler scheduler() {
+        return Schedulers.trampoline();
+    }
+
     void clear() throws IOException;
 
     boolean isEmpty();
@@ -44,7 +55,7 @@ public interface DataSink {
             try (final OutputStream outputStream = writeTo()) {
                 consumer.accept(outputStream);
             }
-        });
+        }).subscribeOn(scheduler());
     }
 
     Completable writeToWithWriter(Consumer<Writer> consumer);
@@ -54,11 +65,60 @@ public interface DataSink {
             try (final OutputStream outputStream = writeTo()) {
                 return function.apply(outputStream);
             }
-        });
+        }).subscribeOn(scheduler());
     }
 
     <T> Single<T> writeToWithWriter(Function<Writer, T> function);
 
+    default WritableByteChannel writeChannel() throws IOException {
+        return Channels.newChannel(writeTo());
+    }
+
+    default Completable writeToWithChannel(final Consumer<WritableByteChannel> consumer) {
+        return Completable.fromAction(() -> {
+            try (final WritableByteChannel channel = writeChannel()) {
+                consumer.accept(channel);
+            }
+        }).subscribeOn(scheduler());
+    }
+
+    default <T> Single<T> writeToWithChannel(final Function<WritableByteChannel, T> function) {
+        return Single.fromCallable(() -> {
+            try (final WritableByteChannel channel = writeChannel()) {
+                return function.apply(channel);
+            }
+        }).subscribeOn(scheduler());
+    }
+
+    default Completable writeToWithBuffers(final ByteBuffer... buffers) {
+        return writeToWithChannel(channel -> {
+            if (channel instanceof GatheringByteChannel) {
+                final GatheringByteChannel gatheringChannel = (GatheringByteChannel) channel;
+                long remaining = 0L;
+                for (final ByteBuffer buffer : buffers) {
+                    remaining += buffer.remaining();
+                }
+                while (remaining > 0L) {
+                    remaining -= gatheringChannel.write(buffers);
+                }
+            } else {
+                for (final ByteBuffer buffer : buffers) {
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                }
+            }
+        });
+    }
+
+    default Completable write(final Flowable<ByteBuffer> buffers) {
+        return Flowable.using(this::writeChannel, channel -> buffers.doOnNext(buffer -> {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }), WritableByteChannel::close).ignoreElements().subscribeOn(scheduler());
+    }
+
     Completable copyFrom(final DataSource dataBucket);
 
 }
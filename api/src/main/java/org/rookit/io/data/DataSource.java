@@ -22,16 +22,58 @@
 package org.rookit.io.data;
 
 import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Scheduler;
 import io.reactivex.Single;
 import io.reactivex.functions.Consumer;
 import io.reactivex.functions.Function;
+import io.reactivex.schedulers.Schedulers;
 
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.NoSuchFileException;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
 
 public interface DataSource {
 
+    default Scheduler scheduler() {
+        return Schedulers.trampoline();
+    }
+
+    /**
+     * The attributes of the content. Sources that cannot tell them without reading are probed by opening the
+     * content, so that existing implementations keep working.
+     */
+    default DataMetadata metadata() throws IOException {
+        try (final InputStream ignored = readFrom()) {
+            return DataMetadata.of(OptionalLong.empty(), Optional.empty());
+        } catch (final FileNotFoundException | NoSuchFileException e) {
+            return DataMetadata.absent();
+        }
+    }
+
+    default boolean exists() throws IOException {
+        return metadata().exists();
+    }
+
+    default OptionalLong size() throws IOException {
+        return metadata().size();
+    }
+
+    default Optional<Instant> lastModified() throws IOException {
+        return metadata().lastModified();
+    }
+
     @Deprecated
     InputStream readFrom() throws IOException;
 
@@ -40,7 +82,7 @@ public interface DataSource {
             try (final InputStream inputStream = readFrom()) {
                 return function.apply(inputStream);
             }
-        });
+        }).subscribeOn(scheduler());
     }
 
     <T> Single<T> readFromWithReader(final Function<Reader, T> function);
@@ -50,9 +92,93 @@ public interface DataSource {
             try (final InputStream inputStream = readFrom()) {
                 consumer.accept(inputStream);
             }
-        });
+        }).subscribeOn(scheduler());
     }
 
     Completable readFromWithReader(final Consumer<Reader> consumer);
 
+    default ReadableByteChannel readChannel() throws IOException {
+        return Channels.newChannel(readFrom());
+    }
+
+    default <T> Single<T> readFromWithChannel(final Function<ReadableByteChannel, T> function) {
+        return Single.fromCallable(() -> {
+            try (final ReadableByteChannel channel = readChannel()) {
+                return function.apply(channel);
+            }
+        }).subscribeOn(scheduler());
+    }
+
+    default Completable readFromWithChannel(final Consumer<ReadableByteChannel> consumer) {
+        return Completable.fromAction(() -> {
+            try (final ReadableByteChannel channel = readChannel()) {
+                consumer.accept(channel);
+            }
+        }).subscribeOn(scheduler());
+    }
+
+    default <T> Single<T> readFromWithBuffer(final Function<ByteBuffer, T> function) {
+        return readFrom(inputStream -> {
+            final ByteArrayOutputStream content = new ByteArrayOutputStream();
+            final byte[] chunk = new byte[8192];
+            int read = inputStream.read(chunk);
+            while (read != -1) {
+                content.write(chunk, 0, read);
+                read = inputStream.read(chunk);
+            }
+            return function.apply(ByteBuffer.wrap(content.toByteArray()));
+        });
+    }
+
+    default <T> Single<T> readRange(final long offset, final int length, final Function<ByteBuffer, T> function) {
+        return readFrom(inputStream -> {
+            long skipped = 0L;
+            while (skipped < offset) {
+                final long step = inputStream.skip(offset - skipped);
+                if (step > 0L) {
+                    skipped += step;
+                } else if (inputStream.read() != -1) {
+                    skipped++;
+                } else {
+                    // the offset is past the end of the content
+                    return function.apply(ByteBuffer.allocate(0));
+                }
+            }
+            final byte[] content = new byte[length];
+            int read = 0;
+            while (read < length) {
+                final int step = inputStream.read(content, read, length - read);
+                if (step == -1) {
+                    break;
+                }
+                read += step;
+            }
+            return function.apply(ByteBuffer.wrap(content, 0, read));
+        });
+    }
+
+    default Flowable<ByteBuffer> stream(final int chunkSize) {
+        // pull based, so a chunk is only read once it is requested downstream
+        return Flowable.<ByteBuffer, ReadableByteChannel>generate(this::readChannel, (channel, emitter) -> {
+            final ByteBuffer chunk = ByteBuffer.allocate(chunkSize);
+            if (channel.read(chunk) == -1) {
+                emitter.onComplete();
+            } else {
+                chunk.flip();
+                emitter.onNext(chunk);
+            }
+        }, ReadableByteChannel::close).subscribeOn(scheduler());
+    }
+
+    /**
+     * Reads the whole content as a list of read-only buffers (more than one only for content larger than a single
+     * buffer can address), which may be backed by a memory mapping shared with other readers. The buffers are only
+     * valid while the function is running and must not escape it.
+     */
+    default <T> Single<T> readMapped(final Function<List<ByteBuffer>, T> function) {
+        return readFromWithBuffer(buffer -> {
+            return function.apply(Collections.singletonList(buffer.asReadOnlyBuffer()));
+        });
+    }
+
 }
@@ -0,0 +1,208 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.data;
+
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
+import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Function;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+
+/**
+ * A {@link DataBucket} that forwards every call to another bucket. Subclasses override only the operations
+ * they decorate.
+ */
+public abstract class ForwardingDataBucket implements DataBucket {
+
+    protected ForwardingDataBucket() {}
+
+    protected abstract DataBucket delegate();
+
+    @Override
+    public Scheduler scheduler() {
+        return delegate().scheduler();
+    }
+
+    @Override
+    public DataMetadata metadata() throws IOException {
+        return delegate().metadata();
+    }
+
+    @Override
+    public boolean exists() throws IOException {
+        return delegate().exists();
+    }
+
+    @Override
+    public OptionalLong size() throws IOException {
+        return delegate().size();
+    }
+
+    @Override
+    public Optional<Instant> lastModified() throws IOException {
+        return delegate().lastModified();
+    }
+
+    @Override
+    public InputStream readFrom() throws IOException {
+        return delegate().readFrom();
+    }
+
+    @Override
+    public <T> Single<T> readFrom(final Function<InputStream, T> function) {
+        return delegate().readFrom(function);
+    }
+
+    @Override
+    public Completable readFrom(final Consumer<InputStream> consumer) {
+        return delegate().readFrom(consumer);
+    }
+
+    @Override
+    public <T> Single<T> readFromWithReader(final Function<Reader, T> function) {
+        return delegate().readFromWithReader(function);
+    }
+
+    @Override
+    public Completable readFromWithReader(final Consumer<Reader> consumer) {
+        return delegate().readFromWithReader(consumer);
+    }
+
+    @Override
+    public ReadableByteChannel readChannel() throws IOException {
+        return delegate().readChannel();
+    }
+
+    @Override
+    public <T> Single<T> readFromWithChannel(final Function<ReadableByteChannel, T> function) {
+        return delegate().readFromWithChannel(function);
+    }
+
+    @Override
+    public Completable readFromWithChannel(final Consumer<ReadableByteChannel> consumer) {
+        return delegate().readFromWithChannel(consumer);
+    }
+
+    @Override
+    public <T> Single<T> readFromWithBuffer(final Function<ByteBuffer, T> function) {
+        return delegate().readFromWithBuffer(function);
+    }
+
+    @Override
+    public <T> Single<T> readRange(final long offset, final int length, final Function<ByteBuffer, T> function) {
+        return delegate().readRange(offset, length, function);
+    }
+
+    @Override
+    public Flowable<ByteBuffer> stream(final int chunkSize) {
+        return delegate().stream(chunkSize);
+    }
+
+    @Override
+    public <T> Single<T> readMapped(final Function<List<ByteBuffer>, T> function) {
+        return delegate().readMapped(function);
+    }
+
+    @Override
+    public void clear() throws IOException {
+        delegate().clear();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return delegate().isEmpty();
+    }
+
+    @Override
+    public OutputStream writeTo() throws IOException {
+        return delegate().writeTo();
+    }
+
+    @Override
+    public Completable writeTo(final Consumer<OutputStream> consumer) {
+        return delegate().writeTo(consumer);
+    }
+
+    @Override
+    public <T> Single<T> writeTo(final Function<OutputStream, T> function) {
+        return delegate().writeTo(function);
+    }
+
+    @Override
+    public Completable writeToWithWriter(final Consumer<Writer> consumer) {
+        return delegate().writeToWithWriter(consumer);
+    }
+
+    @Override
+    public <T> Single<T> writeToWithWriter(final Function<Writer, T> function) {
+        return delegate().writeToWithWriter(function);
+    }
+
+    @Override
+    public WritableByteChannel writeChannel() throws IOException {
+        return delegate().writeChannel();
+    }
+
+    @Override
+    public Completable writeToWithChannel(final Consumer<WritableByteChannel> consumer) {
+        return delegate().writeToWithChannel(consumer);
+    }
+
+    @Override
+    public <T> Single<T> writeToWithChannel(final Function<WritableByteChannel, T> function) {
+        return delegate().writeToWithChannel(function);
+    }
+
+    @Override
+    public Completable writeToWithBuffers(final ByteBuffer... buffers) {
+        return delegate().writeToWithBuffers(buffers);
+    }
+
+    @Override
+    public Completable write(final Flowable<ByteBuffer> buffers) {
+        return delegate().write(buffers);
+    }
+
+    @Override
+    public Completable copyFrom(final DataSource dataBucket) {
+        return delegate().copyFrom(dataBucket);
+    }
+
+    @Override
+    public String toString() {
+        return delegate().toString();
+    }
+}
@@ -24,6 +24,10 @@ package org.rookit.io;
 import com.google.inject.AbstractModule;
 import com.google.inject.Module;
 import com.google.inject.util.Modules;
+import org.rookit.io.cache.IOCacheModule;
+import org.rookit.io.memory.HeapMemoryModule;
+import org.rookit.io.memory.OffHeapMemoryModule;
+import org.rookit.io.memory.SpillingMemoryModule;
 import org.rookit.io.object.IOObjectModule;
 import org.rookit.io.uri.IOURIModule;
 import org.rookit.io.url.IOURLModule;
@@ -32,6 +36,10 @@ public final class IOLibModule extends AbstractModule {
 
     private static final Module MODULE = Modules.combine(
             new IOLibModule(),
+            IOCacheModule.getModule(),
+            HeapMemoryModule.getModule(),
+            OffHeapMemoryModule.getModule(),
+            SpillingMemoryModule.getModule(),
             IOObjectModule.getModule(),
             IOURIModule.getModule(),
             IOURLModule.getModule()
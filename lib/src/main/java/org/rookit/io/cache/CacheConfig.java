@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.cache;
+
+import org.immutables.value.Value;
+
+import java.time.Duration;
+
+@Value.Immutable
+public interface CacheConfig {
+
+    /**
+     * Total bytes kept in the in-memory tier.
+     */
+    @Value.Default
+    default long memoryCapacity() {
+        return 64L * 1024L * 1024L;
+    }
+
+    /**
+     * Content larger than this is only served from the disk tier.
+     */
+    @Value.Default
+    default long maxMemoryEntrySize() {
+        return 4L * 1024L * 1024L;
+    }
+
+    /**
+     * Total bytes kept in the disk tier, under the temporary directory.
+     */
+    @Value.Default
+    default long diskCapacity() {
+        return 1024L * 1024L * 1024L;
+    }
+
+    /**
+     * How long cached content is served before it is fetched from the origin again. Zero keeps it until evicted.
+     */
+    @Value.Default
+    default Duration timeToLive() {
+        return Duration.ofMinutes(10);
+    }
+
+}
@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.cache;
+
+import org.rookit.io.data.DataSource;
+
+/**
+ * Cached content handed out by the {@link TieredCache}, which must be released once read.
+ */
+final class CacheLease {
+
+    private final DataSource source;
+    private final CachedFile file;
+
+    static CacheLease inMemory(final DataSource source) {
+        return new CacheLease(source, null);
+    }
+
+    static CacheLease onDisk(final DataSource source, final CachedFile file) {
+        return new CacheLease(source, file);
+    }
+
+    private CacheLease(final DataSource source, final CachedFile file) {
+        this.source = source;
+        this.file = file;
+    }
+
+    DataSource source() {
+        return this.source;
+    }
+
+    void release() {
+        if (this.file != null) {
+            this.file.release();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CacheLease{" +
+                "source=" + this.source +
+                ", file=" + this.file +
+                "}";
+    }
+}
@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.cache;
+
+import io.reactivex.Completable;
+import io.reactivex.Single;
+import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Function;
+import org.rookit.failsafe.Failsafe;
+import org.rookit.io.data.DataMetadata;
+import org.rookit.io.data.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+
+final class CachedBytes implements DataSource {
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(CachedBytes.class);
+
+    private final Failsafe failsafe;
+    private final byte[] content;
+    private final Charset charset;
+
+    CachedBytes(final Failsafe failsafe, final byte[] content, final Charset charset) {
+        this.failsafe = failsafe;
+        //noinspection AssignmentOrReturnOfFieldWithMutableType -> never written after being cached
+        this.content = content;
+        this.charset = charset;
+    }
+
+    @Override
+    public DataMetadata metadata() {
+        return DataMetadata.of(OptionalLong.of(this.content.length), Optional.empty());
+    }
+
+    @Override
+    public InputStream readFrom() {
+        return new ByteArrayInputStream(this.content);
+    }
+
+    @Override
+    public <T> Single<T> readFromWithReader(final Function<Reader, T> function) {
+        return Single.fromCallable(() -> function.apply(new InputStreamReader(readFrom(), this.charset)));
+    }
+
+    @Override
+    public Completable readFromWithReader(final Consumer<Reader> consumer) {
+        return Completable.fromAction(() -> consumer.accept(new InputStreamReader(readFrom(), this.charset)));
+    }
+
+    @Override
+    public <T> Single<T> readFromWithBuffer(final Function<ByteBuffer, T> function) {
+        return Single.fromCallable(() -> function.apply(ByteBuffer.wrap(this.content).asReadOnlyBuffer()));
+    }
+
+    @Override
+    public <T> Single<T> readRange(final long offset, final int length, final Function<ByteBuffer, T> function) {
+        this.failsafe.checkArgument().isNotNegative(logger, offset, "offset");
+        this.failsafe.checkArgument().isNotNegative(logger, length, "length");
+        return Single.fromCallable(() -> {
+            final int start = (int) Math.min(offset, this.content.length);
+            final int end = (int) Math.min((long) start + length, this.content.length);
+            return function.apply(ByteBuffer.wrap(this.content, start, end - start).slice().asReadOnlyBuffer());
+        });
+    }
+
+    @Override
+    public <T> Single<T> readMapped(final Function<List<ByteBuffer>, T> function) {
+        return readFromWithBuffer(buffer -> function.apply(Collections.singletonList(buffer)));
+    }
+
+    @Override
+    public String toString() {
+        return "CachedBytes{" +
+                "failsafe=" + this.failsafe +
+                ", size=" + this.content.length +
+                ", charset=" + this.charset +
+                "}";
+    }
+}
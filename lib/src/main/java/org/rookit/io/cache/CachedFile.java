@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.cache;
+
+import org.rookit.io.path.pool.TemporaryPathPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A file of the disk tier. The cache holds one reference and every lease another, so that evicted files are only
+ * returned to the pool once nobody reads them anymore.
+ */
+final class CachedFile {
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(CachedFile.class);
+
+    private final Path file;
+    private final TemporaryPathPool pool;
+    private final AtomicInteger references;
+
+    CachedFile(final Path file, final TemporaryPathPool pool) {
+        this.file = file;
+        this.pool = pool;
+        this.references = new AtomicInteger(1);
+    }
+
+    Path file() {
+        return this.file;
+    }
+
+    /**
+     * Takes a reference, failing if the file has already been released by everyone holding it.
+     */
+    boolean retain() {
+        while (true) {
+            final int current = this.references.get();
+            if (current == 0) {
+                return false;
+            }
+            if (this.references.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    void release() {
+        if (this.references.decrementAndGet() == 0) {
+            try {
+                this.pool.offer(this.file);
+            } catch (final IOException e) {
+                logger.warn("Cannot return {} to the pool", this.file, e);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CachedFile{" +
+                "file=" + this.file +
+                ", references=" + this.references +
+                "}";
+    }
+}
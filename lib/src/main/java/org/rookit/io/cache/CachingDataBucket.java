@@ -0,0 +1,249 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.cache;
+
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Single;
+import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Function;
+import org.rookit.io.data.DataBucket;
+import org.rookit.io.data.DataSource;
+import org.rookit.io.data.ForwardingDataBucket;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
+
+final class CachingDataBucket extends ForwardingDataBucket {
+
+    private final String key;
+    private final DataBucket origin;
+    private final TieredCache cache;
+
+    CachingDataBucket(final String key, final DataBucket origin, final TieredCache cache) {
+        this.key = key;
+        this.origin = origin;
+        this.cache = cache;
+    }
+
+    @Override
+    protected DataBucket delegate() {
+        return this.origin;
+    }
+
+    private CacheLease cached() throws IOException {
+        try {
+            return this.cache.get(this.key, this.origin).blockingGet();
+        } catch (final RuntimeException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private <T> Single<T> fromCache(final Function<DataSource, Single<T>> read) {
+        // the fill is part of the chain, so a miss never blocks a scheduler thread on work queued behind it
+        return this.cache.get(this.key, this.origin)
+                .flatMap(lease -> Single.using(() -> lease, leased -> read.apply(leased.source()),
+                        CacheLease::release))
+                .subscribeOn(scheduler());
+    }
+
+    private Completable completeFromCache(final Function<DataSource, Completable> read) {
+        return this.cache.get(this.key, this.origin)
+                .flatMapCompletable(lease -> Completable.using(() -> lease, leased -> read.apply(leased.source()),
+                        CacheLease::release))
+                .subscribeOn(scheduler());
+    }
+
+    private void invalidate() {
+        this.cache.invalidate(this.key);
+    }
+
+    private Completable invalidating(final Completable write) {
+        return Completable.defer(() -> {
+            invalidate();
+            return write;
+        }).doFinally(this::invalidate);
+    }
+
+    private <T> Single<T> invalidating(final Single<T> write) {
+        return Single.defer(() -> {
+            invalidate();
+            return write;
+        }).doFinally(this::invalidate);
+    }
+
+    @Override
+    public InputStream readFrom() throws IOException {
+        return Channels.newInputStream(readChannel());
+    }
+
+    @Override
+    public <T> Single<T> readFrom(final Function<InputStream, T> function) {
+        return fromCache(source -> source.readFrom(function));
+    }
+
+    @Override
+    public Completable readFrom(final Consumer<InputStream> consumer) {
+        return completeFromCache(source -> source.readFrom(consumer));
+    }
+
+    @Override
+    public <T> Single<T> readFromWithReader(final Function<Reader, T> function) {
+        return fromCache(source -> source.readFromWithReader(function));
+    }
+
+    @Override
+    public Completable readFromWithReader(final Consumer<Reader> consumer) {
+        return completeFromCache(source -> source.readFromWithReader(consumer));
+    }
+
+    @Override
+    public ReadableByteChannel readChannel() throws IOException {
+        final CacheLease lease = cached();
+        try {
+            return new LeasedChannel(lease, lease.source().readChannel());
+        } catch (final IOException | RuntimeException e) {
+            lease.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public <T> Single<T> readFromWithChannel(final Function<ReadableByteChannel, T> function) {
+        return fromCache(source -> source.readFromWithChannel(function));
+    }
+
+    @Override
+    public Completable readFromWithChannel(final Consumer<ReadableByteChannel> consumer) {
+        return completeFromCache(source -> source.readFromWithChannel(consumer));
+    }
+
+    @Override
+    public <T> Single<T> readFromWithBuffer(final Function<ByteBuffer, T> function) {
+        return fromCache(source -> source.readFromWithBuffer(function));
+    }
+
+    @Override
+    public <T> Single<T> readRange(final long offset, final int length, final Function<ByteBuffer, T> function) {
+        return fromCache(source -> source.readRange(offset, length, function));
+    }
+
+    @Override
+    public Flowable<ByteBuffer> stream(final int chunkSize) {
+        return this.cache.get(this.key, this.origin)
+                .flatMapPublisher(lease -> Flowable.using(() -> lease, leased -> leased.source().stream(chunkSize),
+                        CacheLease::release))
+                .subscribeOn(scheduler());
+    }
+
+    @Override
+    public <T> Single<T> readMapped(final Function<List<ByteBuffer>, T> function) {
+        return fromCache(source -> source.readMapped(function));
+    }
+
+    @Override
+    public void clear() throws IOException {
+        invalidate();
+        this.origin.clear();
+    }
+
+    @Override
+    public OutputStream writeTo() throws IOException {
+        // the stream is closed by the caller, so the cache can only be dropped up front
+        invalidate();
+        return this.origin.writeTo();
+    }
+
+    @Override
+    public Completable writeTo(final Consumer<OutputStream> consumer) {
+        return invalidating(this.origin.writeTo(consumer));
+    }
+
+    @Override
+    public <T> Single<T> writeTo(final Function<OutputStream, T> function) {
+        return invalidating(this.origin.writeTo(function));
+    }
+
+    @Override
+    public Completable writeToWithWriter(final Consumer<Writer> consumer) {
+        return invalidating(this.origin.writeToWithWriter(consumer));
+    }
+
+    @Override
+    public <T> Single<T> writeToWithWriter(final Function<Writer, T> function) {
+        return invalidating(this.origin.writeToWithWriter(function));
+    }
+
+    @Override
+    public WritableByteChannel writeChannel() throws IOException {
+        invalidate();
+        return this.origin.writeChannel();
+    }
+
+    @Override
+    public Completable writeToWithChannel(final Consumer<WritableByteChannel> consumer) {
+        return invalidating(this.origin.writeToWithChannel(consumer));
+    }
+
+    @Override
+    public <T> Single<T> writeToWithChannel(final Function<WritableByteChannel, T> function) {
+        return invalidating(this.origin.writeToWithChannel(function));
+    }
+
+    @Override
+    public Completable writeToWithBuffers(final ByteBuffer... buffers) {
+        return invalidating(this.origin.writeToWithBuffers(buffers));
+    }
+
+    @Override
+    public Completable write(final Flowable<ByteBuffer> buffers) {
+        return invalidating(this.origin.write(buffers));
+    }
+
+    @Override
+    public Completable copyFrom(final DataSource dataBucket) {
+        if (equals(dataBucket)) {
+            return Completable.complete();
+        }
+        return invalidating(this.origin.copyFrom(dataBucket));
+    }
+
+    @Override
+    public String toString() {
+        return "CachingDataBucket{" +
+                "key=" + this.key +
+                ", origin=" + this.origin +
+                ", cache=" + this.cache +
+                "}";
+    }
+}
@@ -0,0 +1,78 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.cache;
+
+import io.reactivex.Completable;
+import org.rookit.io.data.DataBucket;
+import org.rookit.io.data.DataBucketFactory;
+import org.rookit.io.data.DataSource;
+
+import java.util.Map;
+
+final class CachingDataBucketFactory<E> implements DataBucketFactory<E> {
+
+    private final DataBucketFactory<E> delegate;
+    private final TieredCache cache;
+
+    CachingDataBucketFactory(final DataBucketFactory<E> delegate, final TieredCache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    private static String keyOf(final Object element) {
+        // keyed by the string form, as URL#equals resolves host names
+        return element.toString();
+    }
+
+    @Override
+    public DataBucket create(final E element) {
+        return new CachingDataBucket(keyOf(element), this.delegate.create(element), this.cache);
+    }
+
+    @Override
+    public Completable copyAll(final Map<E, ? extends DataSource> sources) {
+        return Completable.defer(() -> {
+            invalidate(sources);
+            return this.delegate.copyAll(sources);
+        }).doFinally(() -> invalidate(sources));
+    }
+
+    private void invalidate(final Map<E, ? extends DataSource> sources) {
+        for (final E element : sources.keySet()) {
+            this.cache.invalidate(keyOf(element));
+        }
+    }
+
+    @Override
+    public void close() {
+        // the decorated factory is shared, so only the cached content is released
+        this.cache.close();
+    }
+
+    @Override
+    public String toString() {
+        return "CachingDataBucketFactory{" +
+                "delegate=" + this.delegate +
+                ", cache=" + this.cache +
+                "}";
+    }
+}
@@ -0,0 +1,78 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.cache;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Module;
+import com.google.inject.Provides;
+import com.google.inject.Singleton;
+import org.rookit.failsafe.Failsafe;
+import org.rookit.io.data.DataBucketFactory;
+import org.rookit.io.path.pool.TemporaryPathPool;
+
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+
+@SuppressWarnings("MethodMayBeStatic")
+public final class IOCacheModule extends AbstractModule {
+
+    private static final Module MODULE = new IOCacheModule();
+
+    public static Module getModule() {
+        return MODULE;
+    }
+
+    private IOCacheModule() {}
+
+    @Override
+    protected void configure() {
+        bind(CacheConfig.class).toInstance(ImmutableCacheConfig.builder().build());
+    }
+
+    @Provides
+    @Singleton
+    @Cached
+    DataBucketFactory<URL> cachedUrlFactory(final Failsafe failsafe,
+                                            final DataBucketFactory<URL> factory,
+                                            final CacheConfig config,
+                                            final TemporaryPathPool pool,
+                                            final DataBucketFactory<Path> fileFactory,
+                                            final Charset charset) {
+        return new CachingDataBucketFactory<>(factory, new TieredCache(failsafe, config, pool, fileFactory,
+                charset));
+    }
+
+    @Provides
+    @Singleton
+    @Cached
+    DataBucketFactory<URI> cachedUriFactory(final Failsafe failsafe,
+                                            final DataBucketFactory<URI> factory,
+                                            final CacheConfig config,
+                                            final TemporaryPathPool pool,
+                                            final DataBucketFactory<Path> fileFactory,
+                                            final Charset charset) {
+        return new CachingDataBucketFactory<>(factory, new TieredCache(failsafe, config, pool, fileFactory,
+                charset));
+    }
+}
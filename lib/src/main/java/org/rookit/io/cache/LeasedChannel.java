@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.cache;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Holds the lease on the cached content being read until closed.
+ */
+final class LeasedChannel implements ReadableByteChannel {
+
+    private final CacheLease lease;
+    private final ReadableByteChannel delegate;
+    private boolean open;
+
+    LeasedChannel(final CacheLease lease, final ReadableByteChannel delegate) {
+        this.lease = lease;
+        this.delegate = delegate;
+        this.open = true;
+    }
+
+    @Override
+    public int read(final ByteBuffer destination) throws IOException {
+        return this.delegate.read(destination);
+    }
+
+    @Override
+    public boolean isOpen() {
+        return this.open;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (this.open) {
+            this.open = false;
+            try {
+                this.delegate.close();
+            } finally {
+                this.lease.release();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "LeasedChannel{" +
+                "lease=" + this.lease +
+                ", delegate=" + this.delegate +
+                ", open=" + this.open +
+                "}";
+    }
+}
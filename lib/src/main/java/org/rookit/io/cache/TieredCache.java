@@ -0,0 +1,199 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.Maps;
+import io.reactivex.Single;
+import org.rookit.failsafe.Failsafe;
+import org.rookit.io.data.DataBucketFactory;
+import org.rookit.io.data.DataSource;
+import org.rookit.io.path.pool.TemporaryPathPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+final class TieredCache implements Closeable {
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(TieredCache.class);
+
+    private final Failsafe failsafe;
+    private final CacheConfig config;
+    private final TemporaryPathPool pool;
+    private final DataBucketFactory<Path> fileFactory;
+    private final Charset charset;
+    private final Cache<String, byte[]> memory;
+    private final Cache<String, CachedFile> disk;
+    /**
+     * Fills of the disk tier in progress, shared by every lookup of their key that misses in the meantime.
+     */
+    private final ConcurrentMap<String, Single<CachedFile>> fills;
+
+    TieredCache(final Failsafe failsafe,
+                final CacheConfig config,
+                final TemporaryPathPool pool,
+                final DataBucketFactory<Path> fileFactory,
+                final Charset charset) {
+        this.failsafe = failsafe;
+        this.config = config;
+        this.pool = pool;
+        this.fileFactory = fileFactory;
+        this.charset = charset;
+        this.memory = expiring(CacheBuilder.newBuilder())
+                .maximumWeight(config.memoryCapacity())
+                .weigher((Weigher<String, byte[]>) (key, content) -> content.length)
+                .build();
+        this.disk = expiring(CacheBuilder.newBuilder())
+                .maximumWeight(config.diskCapacity())
+                .weigher((Weigher<String, CachedFile>) (key, file) -> weightOf(file.file()))
+                .removalListener(this::release)
+                .build();
+        this.fills = Maps.newConcurrentMap();
+    }
+
+    private CacheBuilder<Object, Object> expiring(final CacheBuilder<Object, Object> builder) {
+        final Duration timeToLive = this.config.timeToLive();
+        if (timeToLive.isZero()) {
+            return builder;
+        }
+        // changes at the origin are only seen once the cached copy expires
+        return builder.expireAfterWrite(timeToLive.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    private static int weightOf(final Path file) {
+        try {
+            return (int) Math.min(Integer.MAX_VALUE, Files.size(file));
+        } catch (final IOException e) {
+            logger.debug("Cannot weigh {}: {}", file, e.getMessage());
+            return 0;
+        }
+    }
+
+    private void release(final RemovalNotification<String, CachedFile> notification) {
+        notification.getValue().release();
+    }
+
+    /**
+     * Emits a lease on the cached content, filling the cache from the origin on a miss. The lease must be released
+     * once the content has been read, so that the file backing it is not returned to the pool in the meantime.
+     */
+    Single<CacheLease> get(final String key, final DataSource origin) {
+        return Single.defer(() -> {
+            final byte[] cached = this.memory.getIfPresent(key);
+            if (cached != null) {
+                return Single.just(CacheLease.inMemory(new CachedBytes(this.failsafe, cached, this.charset)));
+            }
+            return load(key, origin).map(file -> lease(key, file));
+        });
+    }
+
+    private CacheLease lease(final String key, final CachedFile file) throws IOException {
+        final Path path = file.file();
+        final byte[] content;
+        try {
+            if (Files.size(path) > this.config.maxMemoryEntrySize()) {
+                return CacheLease.onDisk(this.fileFactory.create(path), file);
+            }
+            content = Files.readAllBytes(path);
+        } catch (final IOException | RuntimeException e) {
+            file.release();
+            throw e;
+        }
+        file.release();
+        this.memory.put(key, content);
+        return CacheLease.inMemory(new CachedBytes(this.failsafe, content, this.charset));
+    }
+
+    private Single<CachedFile> load(final String key, final DataSource origin) {
+        return Single.defer(() -> {
+            final CachedFile cached = this.disk.getIfPresent(key);
+            if ((cached != null) && cached.retain()) {
+                return Single.just(cached);
+            }
+            // a file evicted and released before it could be retained is no longer cached either
+            return this.fills.computeIfAbsent(key, ignored -> fill(key, origin))
+                    .flatMap(file -> file.retain() ? Single.just(file) : load(key, origin));
+        });
+    }
+
+    /**
+     * Copies the origin to a new file of the disk tier. The file is only cached once every lookup waiting on the
+     * fill has retained it, so that it cannot be evicted and released under them.
+     */
+    private Single<CachedFile> fill(final String key, final DataSource origin) {
+        final AtomicReference<Single<CachedFile>> self = new AtomicReference<>();
+        final Single<CachedFile> fill = Single.fromCallable(this.pool::pollFile)
+                .flatMap(file -> {
+                    logger.debug("Caching {} in {}", origin, file);
+                    return this.fileFactory.create(file).copyFrom(origin)
+                            .doOnError(error -> this.pool.offer(file))
+                            .toSingle(() -> new CachedFile(file, this.pool));
+                })
+                .doAfterSuccess(file -> {
+                    this.disk.put(key, file);
+                    this.fills.remove(key, self.get());
+                })
+                .doOnError(error -> this.fills.remove(key, self.get()))
+                .cache();
+        self.set(fill);
+        return fill;
+    }
+
+    void invalidate(final String key) {
+        this.memory.invalidate(key);
+        this.disk.invalidate(key);
+    }
+
+    @Override
+    public void close() {
+        this.memory.invalidateAll();
+        this.disk.invalidateAll();
+    }
+
+    @Override
+    public String toString() {
+        return "TieredCache{" +
+                "failsafe=" + this.failsafe +
+                ", config=" + this.config +
+                ", pool=" + this.pool +
+                ", fileFactory=" + this.fileFactory +
+                ", charset=" + this.charset +
+                ", memory=" + this.memory.size() +
+                ", disk=" + this.disk.size() +
+                "}";
+    }
+}
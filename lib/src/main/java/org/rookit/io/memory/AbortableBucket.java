@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.memory;
+
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Single;
+import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Function;
+import org.rookit.io.data.AbortableChannel;
+import org.rookit.io.data.DataBucket;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * A bucket whose writes are published on a successful close only, with failed writes aborted.
+ */
+interface AbortableBucket extends DataBucket {
+
+    @Override
+    AbortableChannel writeChannel() throws IOException;
+
+    @Override
+    default OutputStream writeTo() throws IOException {
+        return Channels.newOutputStream(writeChannel());
+    }
+
+    @Override
+    default Completable writeTo(final Consumer<OutputStream> consumer) {
+        return writeToWithChannel(channel -> {
+            consumer.accept(Channels.newOutputStream(channel));
+        });
+    }
+
+    @Override
+    default <T> Single<T> writeTo(final Function<OutputStream, T> function) {
+        return writeToWithChannel(channel -> {
+            return function.apply(Channels.newOutputStream(channel));
+        });
+    }
+
+    @Override
+    default Completable writeToWithChannel(final Consumer<WritableByteChannel> consumer) {
+        return writeToWithChannel(channel -> {
+            consumer.accept(channel);
+            return Boolean.TRUE;
+        }).ignoreElement();
+    }
+
+    @Override
+    default <T> Single<T> writeToWithChannel(final Function<WritableByteChannel, T> function) {
+        return Single.fromCallable(() -> {
+            final AbortableChannel channel = writeChannel();
+            try {
+                final T result = function.apply(channel);
+                channel.close();
+                return result;
+            } catch (final Exception e) {
+                channel.abort();
+                throw e;
+            }
+        }).subscribeOn(scheduler());
+    }
+
+    @Override
+    default Completable write(final Flowable<ByteBuffer> buffers) {
+        return Completable.defer(() -> {
+            final AbortableChannel channel = writeChannel();
+            return buffers.doOnNext(buffer -> {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }).ignoreElements()
+                    .doOnComplete(channel::close)
+                    .doOnError(error -> channel.abort())
+                    .doOnDispose(channel::abort);
+        }).subscribeOn(scheduler());
+    }
+
+}
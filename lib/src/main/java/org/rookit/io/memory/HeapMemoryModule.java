@@ -0,0 +1,65 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.memory;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Module;
+import com.google.inject.Provides;
+import com.google.inject.Singleton;
+import io.reactivex.Scheduler;
+import org.rookit.failsafe.Failsafe;
+import org.rookit.io.data.CopyEngine;
+import org.rookit.io.data.DataBucketFactory;
+import org.rookit.io.data.IOScheduler;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+@SuppressWarnings("MethodMayBeStatic")
+public final class HeapMemoryModule extends AbstractModule {
+
+    private static final int SEGMENT_SIZE = 64 * 1024;
+
+    private static final Module MODULE = new HeapMemoryModule();
+
+    public static Module getModule() {
+        return MODULE;
+    }
+
+    private HeapMemoryModule() {}
+
+    @Override
+    protected void configure() {
+        // nothing to configure
+    }
+
+    @Provides
+    @Singleton
+    @HeapMemory
+    DataBucketFactory<String> heapDataBucketFactory(final Failsafe failsafe,
+                                                    final Charset charset,
+                                                    @IOScheduler final Scheduler scheduler,
+                                                    final CopyEngine copyEngine) {
+        return new MemoryDataBucketFactory(failsafe, ByteBuffer::allocate, SEGMENT_SIZE, charset, scheduler,
+                copyEngine);
+    }
+}
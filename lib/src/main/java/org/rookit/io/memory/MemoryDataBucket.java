@@ -0,0 +1,217 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.memory;
+
+import io.reactivex.Completable;
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
+import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Function;
+import org.rookit.failsafe.Failsafe;
+import org.rookit.io.data.CopyEngine;
+import org.rookit.io.data.DataMetadata;
+import org.rookit.io.data.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntFunction;
+
+final class MemoryDataBucket implements AbortableBucket {
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(MemoryDataBucket.class);
+
+    private final Failsafe failsafe;
+    private final String name;
+    private final IntFunction<ByteBuffer> allocator;
+    private final int segmentSize;
+    private final Charset charset;
+    private final Scheduler scheduler;
+    private final CopyEngine copyEngine;
+    private final AtomicReference<SegmentedContent> content;
+
+    MemoryDataBucket(final Failsafe failsafe,
+                     final String name,
+                     final IntFunction<ByteBuffer> allocator,
+                     final int segmentSize,
+                     final Charset charset,
+                     final Scheduler scheduler,
+                     final CopyEngine copyEngine) {
+        this.failsafe = failsafe;
+        this.name = name;
+        this.allocator = allocator;
+        this.segmentSize = segmentSize;
+        this.charset = charset;
+        this.scheduler = scheduler;
+        this.copyEngine = copyEngine;
+        this.content = new AtomicReference<>();
+    }
+
+    @Override
+    public Scheduler scheduler() {
+        return this.scheduler;
+    }
+
+    @Override
+    public void clear() {
+        this.content.set(null);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        final SegmentedContent current = this.content.get();
+        return (current == null) || (current.size() == 0L);
+    }
+
+    @Override
+    public DataMetadata metadata() {
+        final SegmentedContent current = this.content.get();
+        if (current == null) {
+            return DataMetadata.absent();
+        }
+        return DataMetadata.of(OptionalLong.of(current.size()), Optional.of(current.lastModified()));
+    }
+
+    private SegmentedContent current() throws FileNotFoundException {
+        final SegmentedContent current = this.content.get();
+        if (current == null) {
+            throw new FileNotFoundException(this.name);
+        }
+        return current;
+    }
+
+    @Override
+    public InputStream readFrom() throws FileNotFoundException {
+        return Channels.newInputStream(readChannel());
+    }
+
+    @Override
+    public ReadableByteChannel readChannel() throws FileNotFoundException {
+        return current().readChannel();
+    }
+
+    @Override
+    public <T> Single<T> readFromWithBuffer(final Function<ByteBuffer, T> function) {
+        return Single.fromCallable(() -> function.apply(current().toBuffer()));
+    }
+
+    @Override
+    public <T> Single<T> readRange(final long offset, final int length, final Function<ByteBuffer, T> function) {
+        this.failsafe.checkArgument().isNotNegative(logger, offset, "offset");
+        this.failsafe.checkArgument().isNotNegative(logger, length, "length");
+        return Single.fromCallable(() -> function.apply(current().range(offset, length)));
+    }
+
+    @Override
+    public <T> Single<T> readMapped(final Function<List<ByteBuffer>, T> function) {
+        // the segments already are in memory, so they are handed out as they are
+        return Single.fromCallable(() -> function.apply(current().segments()));
+    }
+
+    private Reader toReader(final InputStream stream) {
+        return new InputStreamReader(stream, this.charset);
+    }
+
+    private Writer toWriter(final OutputStream stream) {
+        return new OutputStreamWriter(stream, this.charset);
+    }
+
+    @Override
+    public <T> Single<T> readFromWithReader(final Function<Reader, T> function) {
+        return readFrom(stream -> {
+            return function.apply(toReader(stream));
+        });
+    }
+
+    @Override
+    public Completable readFromWithReader(final Consumer<Reader> consumer) {
+        return readFrom(stream -> {
+            consumer.accept(toReader(stream));
+        });
+    }
+
+    @Override
+    public OutputStream writeTo() {
+        return Channels.newOutputStream(writeChannel());
+    }
+
+    @Override
+    public SegmentWriter writeChannel() {
+        return new SegmentWriter(this.allocator, this.segmentSize, this::publish);
+    }
+
+    void publish(final SegmentedContent written) {
+        this.content.set(written);
+    }
+
+    @Override
+    public Completable writeToWithWriter(final Consumer<Writer> consumer) {
+        return writeTo(stream -> {
+            consumer.accept(toWriter(stream));
+        });
+    }
+
+    @Override
+    public <T> Single<T> writeToWithWriter(final Function<Writer, T> function) {
+        return writeTo(stream -> {
+            return function.apply(toWriter(stream));
+        });
+    }
+
+    @Override
+    public Completable copyFrom(final DataSource dataBucket) {
+        if (equals(dataBucket)) {
+            logger.trace("Attempting to copy {} to itself. Skipping.", this.name);
+            return Completable.complete();
+        }
+        return this.copyEngine.copy(dataBucket, this);
+    }
+
+    @Override
+    public String toString() {
+        return "MemoryDataBucket{" +
+                "failsafe=" + this.failsafe +
+                ", name=" + this.name +
+                ", segmentSize=" + this.segmentSize +
+                ", charset=" + this.charset +
+                ", scheduler=" + this.scheduler +
+                ", content=" + this.content +
+                "}";
+    }
+}
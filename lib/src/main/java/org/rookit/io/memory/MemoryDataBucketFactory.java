@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.memory;
+
+import com.google.common.collect.Maps;
+import io.reactivex.Scheduler;
+import org.rookit.failsafe.Failsafe;
+import org.rookit.io.data.CopyEngine;
+import org.rookit.io.data.DataBucket;
+import org.rookit.io.data.DataBucketFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+final class MemoryDataBucketFactory implements DataBucketFactory<String> {
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(MemoryDataBucketFactory.class);
+
+    private final Failsafe failsafe;
+    private final IntFunction<ByteBuffer> allocator;
+    private final int segmentSize;
+    private final Charset charset;
+    private final Scheduler scheduler;
+    private final CopyEngine copyEngine;
+    private final Map<String, DataBucket> buckets;
+
+    MemoryDataBucketFactory(final Failsafe failsafe,
+                            final IntFunction<ByteBuffer> allocator,
+                            final int segmentSize,
+                            final Charset charset,
+                            final Scheduler scheduler,
+                            final CopyEngine copyEngine) {
+        this.failsafe = failsafe;
+        this.allocator = allocator;
+        this.segmentSize = segmentSize;
+        this.charset = charset;
+        this.scheduler = scheduler;
+        this.copyEngine = copyEngine;
+        this.buckets = Maps.newConcurrentMap();
+    }
+
+    @Override
+    public DataBucket create(final String name) {
+        this.failsafe.checkArgument().isNotNull(logger, name, "name");
+        // the same name always refers to the same content, just like a path does
+        return this.buckets.computeIfAbsent(name, key -> new MemoryDataBucket(this.failsafe, key, this.allocator,
+                this.segmentSize, this.charset, this.scheduler, this.copyEngine));
+    }
+
+    @Override
+    public void close() {
+        for (final DataBucket bucket : this.buckets.values()) {
+            ((MemoryDataBucket) bucket).clear();
+        }
+        this.buckets.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "MemoryDataBucketFactory{" +
+                "failsafe=" + this.failsafe +
+                ", segmentSize=" + this.segmentSize +
+                ", charset=" + this.charset +
+                ", scheduler=" + this.scheduler +
+                ", copyEngine=" + this.copyEngine +
+                ", buckets=" + this.buckets.size() +
+                "}";
+    }
+}
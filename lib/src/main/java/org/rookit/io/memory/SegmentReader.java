@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.memory;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Iterator;
+import java.util.List;
+
+final class SegmentReader implements ReadableByteChannel {
+
+    private final Iterator<ByteBuffer> segments;
+    private ByteBuffer current;
+    private boolean open;
+
+    SegmentReader(final List<ByteBuffer> segments) {
+        this.segments = segments.iterator();
+        this.open = true;
+    }
+
+    @Override
+    public int read(final ByteBuffer destination) throws ClosedChannelException {
+        if (!this.open) {
+            throw new ClosedChannelException();
+        }
+        int read = 0;
+        while (destination.hasRemaining()) {
+            if ((this.current == null) || !this.current.hasRemaining()) {
+                if (!this.segments.hasNext()) {
+                    return (read == 0) ? -1 : read;
+                }
+                this.current = this.segments.next();
+                continue;
+            }
+            final int length = Math.min(destination.remaining(), this.current.remaining());
+            final ByteBuffer chunk = this.current.duplicate();
+            chunk.limit(chunk.position() + length);
+            destination.put(chunk);
+            this.current.position(this.current.position() + length);
+            read += length;
+        }
+        return read;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return this.open;
+    }
+
+    @Override
+    public void close() {
+        this.open = false;
+    }
+
+    @Override
+    public String toString() {
+        return "SegmentReader{" +
+                "current=" + this.current +
+                ", open=" + this.open +
+                "}";
+    }
+}
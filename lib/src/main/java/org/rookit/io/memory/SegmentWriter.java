@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.memory;
+
+import com.google.common.collect.Lists;
+import org.rookit.io.data.AbortableChannel;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+final class SegmentWriter implements AbortableChannel {
+
+    /**
+     * Capacity of the first segment, so that small contents don't take a whole segment.
+     */
+    private static final int INITIAL_SEGMENT_SIZE = 4 * 1024;
+
+    private final IntFunction<ByteBuffer> allocator;
+    private final int segmentSize;
+    private final Consumer<SegmentedContent> publisher;
+    private final List<ByteBuffer> segments;
+    private ByteBuffer current;
+    private long size;
+    private boolean open;
+
+    SegmentWriter(final IntFunction<ByteBuffer> allocator,
+                  final int segmentSize,
+                  final Consumer<SegmentedContent> publisher) {
+        this.allocator = allocator;
+        this.segmentSize = segmentSize;
+        this.publisher = publisher;
+        this.segments = Lists.newArrayList();
+        this.open = true;
+    }
+
+    @Override
+    public int write(final ByteBuffer source) throws ClosedChannelException {
+        if (!this.open) {
+            throw new ClosedChannelException();
+        }
+        final int written = source.remaining();
+        while (source.hasRemaining()) {
+            if ((this.current == null) || !this.current.hasRemaining()) {
+                this.current = this.allocator.apply(nextSegmentSize(source.remaining()));
+                this.segments.add(this.current);
+            }
+            final ByteBuffer chunk = source.duplicate();
+            chunk.limit(chunk.position() + Math.min(source.remaining(), this.current.remaining()));
+            this.current.put(chunk);
+            source.position(chunk.position());
+        }
+        this.size += written;
+        return written;
+    }
+
+    /**
+     * Segments grow geometrically up to the configured segment size.
+     */
+    private int nextSegmentSize(final int needed) {
+        final int previous = (this.current == null) ? 0 : this.current.capacity();
+        final int grown = Math.max(INITIAL_SEGMENT_SIZE, Math.max(needed, previous * 2));
+        return Math.min(this.segmentSize, grown);
+    }
+
+    @Override
+    public boolean isOpen() {
+        return this.open;
+    }
+
+    @Override
+    public void close() {
+        if (this.open) {
+            this.open = false;
+            for (final ByteBuffer segment : this.segments) {
+                segment.flip();
+            }
+            // content only becomes visible to readers once completely written
+            this.publisher.accept(new SegmentedContent(this.segments, this.size, Instant.now()));
+        }
+    }
+
+    @Override
+    public void abort() {
+        this.open = false;
+        this.segments.clear();
+        this.current = null;
+    }
+
+    @Override
+    public String toString() {
+        return "SegmentWriter{" +
+                "segmentSize=" + this.segmentSize +
+                ", segments=" + this.segments.size() +
+                ", size=" + this.size +
+                ", open=" + this.open +
+                "}";
+    }
+}
@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.memory;
+
+import com.google.common.collect.ImmutableList;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.time.Instant;
+import java.util.List;
+
+final class SegmentedContent {
+
+    private final List<ByteBuffer> segments;
+    private final long size;
+    private final Instant lastModified;
+
+    SegmentedContent(final List<ByteBuffer> segments, final long size, final Instant lastModified) {
+        this.segments = ImmutableList.copyOf(segments);
+        this.size = size;
+        this.lastModified = lastModified;
+    }
+
+    long size() {
+        return this.size;
+    }
+
+    Instant lastModified() {
+        return this.lastModified;
+    }
+
+    /**
+     * Read-only views over the segments, with independent positions.
+     */
+    List<ByteBuffer> segments() {
+        final ImmutableList.Builder<ByteBuffer> views = ImmutableList.builder();
+        for (final ByteBuffer segment : this.segments) {
+            views.add(segment.asReadOnlyBuffer());
+        }
+        return views.build();
+    }
+
+    ReadableByteChannel readChannel() {
+        return new SegmentReader(segments());
+    }
+
+    ByteBuffer toBuffer() {
+        if (this.segments.size() == 1) {
+            return this.segments.get(0).asReadOnlyBuffer();
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(this.size));
+        for (final ByteBuffer segment : this.segments) {
+            buffer.put(segment.duplicate());
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * A range within a single segment is a read-only view over it; only ranges crossing segment boundaries are
+     * copied into a new buffer.
+     */
+    ByteBuffer range(final long offset, final int length) {
+        final int available = (int) Math.min(length, Math.max(0L, this.size - offset));
+        long first = 0L;
+        for (final ByteBuffer segment : this.segments) {
+            final long last = first + segment.remaining();
+            if (offset < last) {
+                if ((offset + available) <= last) {
+                    final ByteBuffer view = segment.asReadOnlyBuffer();
+                    view.position((int) (offset - first));
+                    view.limit(view.position() + available);
+                    return view.slice();
+                }
+                break;
+            }
+            first = last;
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate(available);
+        long segmentStart = 0L;
+        for (final ByteBuffer segment : this.segments) {
+            final long segmentEnd = segmentStart + segment.remaining();
+            if (!buffer.hasRemaining()) {
+                break;
+            }
+            final long start = offset + buffer.position();
+            if (start < segmentEnd) {
+                final ByteBuffer view = segment.duplicate();
+                view.position((int) (start - segmentStart));
+                view.limit(view.position() + Math.min(view.remaining(), buffer.remaining()));
+                buffer.put(view);
+            }
+            segmentStart = segmentEnd;
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    @Override
+    public String toString() {
+        return "SegmentedContent{" +
+                "segments=" + this.segments.size() +
+                ", size=" + this.size +
+                ", lastModified=" + this.lastModified +
+                "}";
+    }
+}
@@ -0,0 +1,276 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.memory;
+
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
+import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Function;
+import org.rookit.failsafe.Failsafe;
+import org.rookit.io.data.CopyEngine;
+import org.rookit.io.data.DataBucketFactory;
+import org.rookit.io.data.DataMetadata;
+import org.rookit.io.data.DataSource;
+import org.rookit.io.path.pool.TemporaryPathPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+final class SpillDataBucket implements AbortableBucket {
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(SpillDataBucket.class);
+
+    private final Failsafe failsafe;
+    private final String name;
+    private final SpillConfig config;
+    private final TemporaryPathPool pool;
+    private final DataBucketFactory<Path> fileFactory;
+    private final Charset charset;
+    private final Scheduler scheduler;
+    private final CopyEngine copyEngine;
+    private final AtomicReference<SpillTier> tier;
+
+    SpillDataBucket(final Failsafe failsafe,
+                    final String name,
+                    final SpillConfig config,
+                    final TemporaryPathPool pool,
+                    final DataBucketFactory<Path> fileFactory,
+                    final Charset charset,
+                    final Scheduler scheduler,
+                    final CopyEngine copyEngine) {
+        this.failsafe = failsafe;
+        this.name = name;
+        this.config = config;
+        this.pool = pool;
+        this.fileFactory = fileFactory;
+        this.charset = charset;
+        this.scheduler = scheduler;
+        this.copyEngine = copyEngine;
+        this.tier = new AtomicReference<>();
+    }
+
+    @Override
+    public Scheduler scheduler() {
+        return this.scheduler;
+    }
+
+    private SpillTier acquire() throws FileNotFoundException {
+        while (true) {
+            final SpillTier current = this.tier.get();
+            if (current == null) {
+                throw new FileNotFoundException(this.name);
+            }
+            if (current.retain()) {
+                return current;
+            }
+        }
+    }
+
+    private void publish(final SpillTier written) {
+        try {
+            release(this.tier.getAndSet(written));
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void release(final SpillTier previous) throws IOException {
+        if (previous != null) {
+            previous.release();
+        }
+    }
+
+    @Override
+    public void clear() throws IOException {
+        release(this.tier.getAndSet(null));
+    }
+
+    @Override
+    public boolean isEmpty() {
+        try {
+            final SpillTier current = acquire();
+            try {
+                return current.bucket().isEmpty();
+            } finally {
+                current.release();
+            }
+        } catch (final FileNotFoundException e) {
+            return true;
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public DataMetadata metadata() throws IOException {
+        final SpillTier current;
+        try {
+            current = acquire();
+        } catch (final FileNotFoundException e) {
+            return DataMetadata.absent();
+        }
+        try {
+            return current.bucket().metadata();
+        } finally {
+            current.release();
+        }
+    }
+
+    /**
+     * Whether the content currently lives in a temporary file rather than in memory.
+     */
+    boolean isSpilled() {
+        final SpillTier current = this.tier.get();
+        return (current != null) && current.file().isPresent();
+    }
+
+    @Override
+    public InputStream readFrom() throws IOException {
+        return Channels.newInputStream(readChannel());
+    }
+
+    @Override
+    public ReadableByteChannel readChannel() throws IOException {
+        final SpillTier current = acquire();
+        try {
+            return new SpillReader(current, current.bucket().readChannel());
+        } catch (final IOException | RuntimeException e) {
+            current.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public <T> Single<T> readFromWithBuffer(final Function<ByteBuffer, T> function) {
+        return Single.using(this::acquire, current -> current.bucket().readFromWithBuffer(function),
+                SpillTier::release);
+    }
+
+    @Override
+    public <T> Single<T> readRange(final long offset, final int length, final Function<ByteBuffer, T> function) {
+        return Single.using(this::acquire, current -> current.bucket().readRange(offset, length, function),
+                SpillTier::release);
+    }
+
+    @Override
+    public <T> Single<T> readMapped(final Function<List<ByteBuffer>, T> function) {
+        return Single.using(this::acquire, current -> current.bucket().readMapped(function), SpillTier::release);
+    }
+
+    @Override
+    public Flowable<ByteBuffer> stream(final int chunkSize) {
+        return Flowable.using(this::acquire, current -> current.bucket().stream(chunkSize), SpillTier::release);
+    }
+
+    private Reader toReader(final InputStream stream) {
+        return new InputStreamReader(stream, this.charset);
+    }
+
+    private Writer toWriter(final OutputStream stream) {
+        return new OutputStreamWriter(stream, this.charset);
+    }
+
+    @Override
+    public <T> Single<T> readFromWithReader(final Function<Reader, T> function) {
+        return readFrom(stream -> {
+            return function.apply(toReader(stream));
+        });
+    }
+
+    @Override
+    public Completable readFromWithReader(final Consumer<Reader> consumer) {
+        return readFrom(stream -> {
+            consumer.accept(toReader(stream));
+        });
+    }
+
+    @Override
+    public OutputStream writeTo() {
+        return Channels.newOutputStream(writeChannel());
+    }
+
+    @Override
+    public SpillingWriter writeChannel() {
+        return new SpillingWriter(this.config.threshold(), this.config.segmentSize(), this.pool, this.fileFactory,
+                () -> new MemoryDataBucket(this.failsafe, this.name, ByteBuffer::allocate,
+                        this.config.segmentSize(), this.charset, this.scheduler, this.copyEngine),
+                this::publish);
+    }
+
+    @Override
+    public Completable writeToWithWriter(final Consumer<Writer> consumer) {
+        return writeTo(stream -> {
+            consumer.accept(toWriter(stream));
+        });
+    }
+
+    @Override
+    public <T> Single<T> writeToWithWriter(final Function<Writer, T> function) {
+        return writeTo(stream -> {
+            return function.apply(toWriter(stream));
+        });
+    }
+
+    @Override
+    public Completable copyFrom(final DataSource dataBucket) {
+        if (equals(dataBucket)) {
+            logger.trace("Attempting to copy {} to itself. Skipping.", this.name);
+            return Completable.complete();
+        }
+        return this.copyEngine.copy(dataBucket, this);
+    }
+
+    @Override
+    public String toString() {
+        return "SpillDataBucket{" +
+                "failsafe=" + this.failsafe +
+                ", name=" + this.name +
+                ", config=" + this.config +
+                ", pool=" + this.pool +
+                ", fileFactory=" + this.fileFactory +
+                ", charset=" + this.charset +
+                ", scheduler=" + this.scheduler +
+                ", tier=" + this.tier +
+                "}";
+    }
+}
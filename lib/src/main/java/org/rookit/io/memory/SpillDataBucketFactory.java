@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.memory;
+
+import com.google.common.collect.Maps;
+import com.google.inject.Inject;
+import io.reactivex.Scheduler;
+import org.rookit.failsafe.Failsafe;
+import org.rookit.io.data.CopyEngine;
+import org.rookit.io.data.DataBucket;
+import org.rookit.io.data.DataBucketFactory;
+import org.rookit.io.data.IOScheduler;
+import org.rookit.io.path.pool.TemporaryPathPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.Map;
+
+final class SpillDataBucketFactory implements DataBucketFactory<String> {
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(SpillDataBucketFactory.class);
+
+    private final Failsafe failsafe;
+    private final SpillConfig config;
+    private final TemporaryPathPool pool;
+    private final DataBucketFactory<Path> fileFactory;
+    private final Charset charset;
+    private final Scheduler scheduler;
+    private final CopyEngine copyEngine;
+    private final Map<String, SpillDataBucket> buckets;
+
+    @Inject
+    private SpillDataBucketFactory(final Failsafe failsafe,
+                                   final SpillConfig config,
+                                   final TemporaryPathPool pool,
+                                   final DataBucketFactory<Path> fileFactory,
+                                   final Charset charset,
+                                   @IOScheduler final Scheduler scheduler,
+                                   final CopyEngine copyEngine) {
+        this.failsafe = failsafe;
+        this.config = config;
+        this.pool = pool;
+        this.fileFactory = fileFactory;
+        this.charset = charset;
+        this.scheduler = scheduler;
+        this.copyEngine = copyEngine;
+        this.buckets = Maps.newConcurrentMap();
+    }
+
+    @Override
+    public DataBucket create(final String name) {
+        this.failsafe.checkArgument().isNotNull(logger, name, "name");
+        return this.buckets.computeIfAbsent(name, key -> new SpillDataBucket(this.failsafe, key, this.config, this.pool,
+                this.fileFactory, this.charset, this.scheduler, this.copyEngine));
+    }
+
+    @Override
+    public void close() throws IOException {
+        // hands every spilled file back to the pool
+        for (final SpillDataBucket bucket : this.buckets.values()) {
+            bucket.clear();
+        }
+        this.buckets.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "SpillDataBucketFactory{" +
+                "failsafe=" + this.failsafe +
+                ", config=" + this.config +
+                ", pool=" + this.pool +
+                ", fileFactory=" + this.fileFactory +
+                ", charset=" + this.charset +
+                ", scheduler=" + this.scheduler +
+                ", copyEngine=" + this.copyEngine +
+                ", buckets=" + this.buckets.size() +
+                "}";
+    }
+}
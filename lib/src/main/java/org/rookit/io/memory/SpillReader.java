@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.memory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Holds a reference to the tier being read until closed.
+ */
+final class SpillReader implements ReadableByteChannel {
+
+    private final SpillTier tier;
+    private final ReadableByteChannel delegate;
+    private boolean open;
+
+    SpillReader(final SpillTier tier, final ReadableByteChannel delegate) {
+        this.tier = tier;
+        this.delegate = delegate;
+        this.open = true;
+    }
+
+    @Override
+    public int read(final ByteBuffer destination) throws IOException {
+        return this.delegate.read(destination);
+    }
+
+    @Override
+    public boolean isOpen() {
+        return this.open;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (this.open) {
+            this.open = false;
+            try {
+                this.delegate.close();
+            } finally {
+                this.tier.release();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SpillReader{" +
+                "tier=" + this.tier +
+                ", delegate=" + this.delegate +
+                ", open=" + this.open +
+                "}";
+    }
+}
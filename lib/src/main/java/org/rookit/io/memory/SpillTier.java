@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.memory;
+
+import org.rookit.io.data.DataBucket;
+import org.rookit.io.path.pool.TemporaryPathPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reference counted: the owning bucket holds one reference and every reader another, so that a spilled file is
+ * only returned to the pool once the tier has been replaced and its last reader is done with it.
+ */
+final class SpillTier {
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(SpillTier.class);
+
+    private final DataBucket bucket;
+    private final Path file;
+    private final TemporaryPathPool pool;
+    private final AtomicInteger references;
+
+    static SpillTier inMemory(final DataBucket bucket) {
+        return new SpillTier(bucket, null, null);
+    }
+
+    static SpillTier onDisk(final DataBucket bucket, final Path file, final TemporaryPathPool pool) {
+        return new SpillTier(bucket, file, pool);
+    }
+
+    private SpillTier(final DataBucket bucket, final Path file, final TemporaryPathPool pool) {
+        this.bucket = bucket;
+        this.file = file;
+        this.pool = pool;
+        this.references = new AtomicInteger(1);
+    }
+
+    DataBucket bucket() {
+        return this.bucket;
+    }
+
+    /**
+     * The temporary file holding the content, if it was spilled to disk.
+     */
+    Optional<Path> file() {
+        return Optional.ofNullable(this.file);
+    }
+
+    /**
+     * Takes a reference, failing if the tier has already been released by everyone holding it.
+     */
+    boolean retain() {
+        while (true) {
+            final int current = this.references.get();
+            if (current == 0) {
+                return false;
+            }
+            if (this.references.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    void release() throws IOException {
+        if ((this.references.decrementAndGet() == 0) && (this.file != null)) {
+            logger.debug("Returning {} to the pool", this.file);
+            this.pool.offer(this.file);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SpillTier{" +
+                "bucket=" + this.bucket +
+                ", file=" + this.file +
+                ", references=" + this.references +
+                "}";
+    }
+}
@@ -0,0 +1,170 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.memory;
+
+import org.rookit.io.data.AbortableChannel;
+import org.rookit.io.data.DataBucket;
+import org.rookit.io.data.DataBucketFactory;
+import org.rookit.io.path.pool.TemporaryPathPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+final class SpillingWriter implements AbortableChannel {
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(SpillingWriter.class);
+
+    private final long threshold;
+    private final TemporaryPathPool pool;
+    private final DataBucketFactory<Path> fileFactory;
+    private final Supplier<MemoryDataBucket> memoryFactory;
+    private final Consumer<SpillTier> publisher;
+    private final AtomicReference<SegmentedContent> buffered;
+    private final SegmentWriter memory;
+    private Path file;
+    private DataBucket fileBucket;
+    private WritableByteChannel fileChannel;
+    private long size;
+    private boolean open;
+    private boolean published;
+
+    SpillingWriter(final long threshold,
+                   final int segmentSize,
+                   final TemporaryPathPool pool,
+                   final DataBucketFactory<Path> fileFactory,
+                   final Supplier<MemoryDataBucket> memoryFactory,
+                   final Consumer<SpillTier> publisher) {
+        this.threshold = threshold;
+        this.pool = pool;
+        this.fileFactory = fileFactory;
+        this.memoryFactory = memoryFactory;
+        this.publisher = publisher;
+        this.buffered = new AtomicReference<>();
+        this.memory = new SegmentWriter(ByteBuffer::allocate, segmentSize, this.buffered::set);
+        this.open = true;
+    }
+
+    @Override
+    public int write(final ByteBuffer source) throws IOException {
+        if (!this.open) {
+            throw new ClosedChannelException();
+        }
+        final int written = source.remaining();
+        if ((this.fileChannel == null) && ((this.size + written) > this.threshold)) {
+            spill();
+        }
+        if (this.fileChannel == null) {
+            this.memory.write(source);
+        } else {
+            writeFully(this.fileChannel, source);
+        }
+        this.size += written;
+        return written;
+    }
+
+    private void spill() throws IOException {
+        this.memory.close();
+        this.file = this.pool.pollFile();
+        logger.debug("Spilling {} bytes to {}", this.size, this.file);
+        try {
+            this.fileBucket = this.fileFactory.create(this.file);
+            this.fileChannel = this.fileBucket.writeChannel();
+            for (final ByteBuffer segment : this.buffered.getAndSet(null).segments()) {
+                writeFully(this.fileChannel, segment);
+            }
+        } catch (final IOException e) {
+            discard();
+            throw e;
+        }
+    }
+
+    private static void writeFully(final WritableByteChannel channel, final ByteBuffer source) throws IOException {
+        while (source.hasRemaining()) {
+            channel.write(source);
+        }
+    }
+
+    private void discard() throws IOException {
+        this.open = false;
+        if (this.fileChannel != null) {
+            this.fileChannel.close();
+        }
+        if (this.file != null) {
+            this.pool.offer(this.file);
+            this.file = null;
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return this.open;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (this.open) {
+            this.open = false;
+            if (this.fileChannel == null) {
+                this.memory.close();
+                final MemoryDataBucket bucket = this.memoryFactory.get();
+                bucket.publish(this.buffered.getAndSet(null));
+                this.publisher.accept(SpillTier.inMemory(bucket));
+            } else {
+                this.fileChannel.close();
+                this.publisher.accept(SpillTier.onDisk(this.fileBucket, this.file, this.pool));
+            }
+            this.published = true;
+        }
+    }
+
+    @Override
+    public void abort() throws IOException {
+        if (!this.published) {
+            this.memory.abort();
+            this.buffered.set(null);
+            discard();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SpillingWriter{" +
+                "threshold=" + this.threshold +
+                ", pool=" + this.pool +
+                ", fileFactory=" + this.fileFactory +
+                ", file=" + this.file +
+                ", size=" + this.size +
+                ", open=" + this.open +
+                "}";
+    }
+}
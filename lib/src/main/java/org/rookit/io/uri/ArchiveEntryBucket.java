@@ -0,0 +1,246 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.uri;
+
+import com.google.common.base.Supplier;
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
+import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Function;
+import org.rookit.io.data.DataBucket;
+import org.rookit.io.data.DataMetadata;
+import org.rookit.io.data.DataSource;
+import org.rookit.io.data.ForwardingDataBucket;
+import org.rookit.io.path.archive.ArchiveIndexService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * An archive entry that is read through the archive index, and only opens the archive's file system (the
+ * delegate) for entries the index cannot serve and for writes. Writes mark the archive as written in the index
+ * service, so that every bucket of the archive reads from the file system until it is closed, as the archive file
+ * only reflects the write after that.
+ */
+final class ArchiveEntryBucket extends ForwardingDataBucket {
+
+    private final ArchiveIndexService indexService;
+    private final Path archive;
+    private final String entry;
+    private final Supplier<DataBucket> fileSystemBucket;
+    private final Scheduler scheduler;
+
+    ArchiveEntryBucket(final ArchiveIndexService indexService,
+                       final Path archive,
+                       final String entry,
+                       final Supplier<DataBucket> fileSystemBucket,
+                       final Scheduler scheduler) {
+        this.indexService = indexService;
+        this.archive = archive;
+        this.entry = entry;
+        this.fileSystemBucket = fileSystemBucket;
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    protected DataBucket delegate() {
+        return this.fileSystemBucket.get();
+    }
+
+    private DataSource source() throws IOException {
+        final Optional<DataSource> indexed = this.indexService.find(this.archive, this.entry);
+        return indexed.isPresent() ? indexed.get() : delegate();
+    }
+
+    /**
+     * Also marked once a write is done, as a close of the previous file system of the archive may have cleared
+     * the mark while the write was under way.
+     */
+    private void markWritten() {
+        this.indexService.written(this.archive);
+    }
+
+    private DataBucket write() {
+        markWritten();
+        return delegate();
+    }
+
+    @Override
+    public Scheduler scheduler() {
+        return this.scheduler;
+    }
+
+    @Override
+    public DataMetadata metadata() throws IOException {
+        return source().metadata();
+    }
+
+    @Override
+    public InputStream readFrom() throws IOException {
+        return source().readFrom();
+    }
+
+    @Override
+    public <T> Single<T> readFrom(final Function<InputStream, T> function) {
+        return Single.defer(() -> source().readFrom(function));
+    }
+
+    @Override
+    public Completable readFrom(final Consumer<InputStream> consumer) {
+        return Completable.defer(() -> source().readFrom(consumer));
+    }
+
+    @Override
+    public <T> Single<T> readFromWithReader(final Function<Reader, T> function) {
+        return Single.defer(() -> source().readFromWithReader(function));
+    }
+
+    @Override
+    public Completable readFromWithReader(final Consumer<Reader> consumer) {
+        return Completable.defer(() -> source().readFromWithReader(consumer));
+    }
+
+    @Override
+    public ReadableByteChannel readChannel() throws IOException {
+        return source().readChannel();
+    }
+
+    @Override
+    public <T> Single<T> readFromWithChannel(final Function<ReadableByteChannel, T> function) {
+        return Single.defer(() -> source().readFromWithChannel(function));
+    }
+
+    @Override
+    public Completable readFromWithChannel(final Consumer<ReadableByteChannel> consumer) {
+        return Completable.defer(() -> source().readFromWithChannel(consumer));
+    }
+
+    @Override
+    public <T> Single<T> readFromWithBuffer(final Function<ByteBuffer, T> function) {
+        return Single.defer(() -> source().readFromWithBuffer(function));
+    }
+
+    @Override
+    public <T> Single<T> readRange(final long offset, final int length, final Function<ByteBuffer, T> function) {
+        return Single.defer(() -> source().readRange(offset, length, function));
+    }
+
+    @Override
+    public Flowable<ByteBuffer> stream(final int chunkSize) {
+        return Flowable.defer(() -> source().stream(chunkSize));
+    }
+
+    @Override
+    public <T> Single<T> readMapped(final Function<List<ByteBuffer>, T> function) {
+        return Single.defer(() -> source().readMapped(function));
+    }
+
+    @Override
+    public void clear() throws IOException {
+        write().clear();
+        markWritten();
+    }
+
+    @Override
+    public OutputStream writeTo() throws IOException {
+        return write().writeTo();
+    }
+
+    @Override
+    public Completable writeTo(final Consumer<OutputStream> consumer) {
+        return Completable.defer(() -> write().writeTo(consumer))
+                .doFinally(this::markWritten);
+    }
+
+    @Override
+    public <T> Single<T> writeTo(final Function<OutputStream, T> function) {
+        return Single.defer(() -> write().writeTo(function))
+                .doFinally(this::markWritten);
+    }
+
+    @Override
+    public Completable writeToWithWriter(final Consumer<Writer> consumer) {
+        return Completable.defer(() -> write().writeToWithWriter(consumer))
+                .doFinally(this::markWritten);
+    }
+
+    @Override
+    public <T> Single<T> writeToWithWriter(final Function<Writer, T> function) {
+        return Single.defer(() -> write().writeToWithWriter(function))
+                .doFinally(this::markWritten);
+    }
+
+    @Override
+    public WritableByteChannel writeChannel() throws IOException {
+        return write().writeChannel();
+    }
+
+    @Override
+    public Completable writeToWithChannel(final Consumer<WritableByteChannel> consumer) {
+        return Completable.defer(() -> write().writeToWithChannel(consumer))
+                .doFinally(this::markWritten);
+    }
+
+    @Override
+    public <T> Single<T> writeToWithChannel(final Function<WritableByteChannel, T> function) {
+        return Single.defer(() -> write().writeToWithChannel(function))
+                .doFinally(this::markWritten);
+    }
+
+    @Override
+    public Completable writeToWithBuffers(final ByteBuffer... buffers) {
+        return Completable.defer(() -> write().writeToWithBuffers(buffers))
+                .doFinally(this::markWritten);
+    }
+
+    @Override
+    public Completable write(final Flowable<ByteBuffer> buffers) {
+        return Completable.defer(() -> write().write(buffers))
+                .doFinally(this::markWritten);
+    }
+
+    @Override
+    public Completable copyFrom(final DataSource dataBucket) {
+        return Completable.defer(() -> write().copyFrom(dataBucket))
+                .doFinally(this::markWritten);
+    }
+
+    @Override
+    public String toString() {
+        return "ArchiveEntryBucket{" +
+                "indexService=" + this.indexService +
+                ", archive=" + this.archive +
+                ", entry=" + this.entry +
+                "}";
+    }
+}
@@ -0,0 +1,298 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.uri;
+
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
+import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Function;
+import org.rookit.io.data.DataBucket;
+import org.rookit.io.data.DataBucketFactory;
+import org.rookit.io.data.DataMetadata;
+import org.rookit.io.data.DataSource;
+import org.rookit.io.path.registry.RefCountedRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.FileSystem;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * A bucket on a file system opened by the registry, such as an archive. Every operation holds a reference to
+ * the file system while it runs, so that it is not closed as idle underneath it, and resolves its path again,
+ * as an idle file system may have been closed and reopened since the last operation.
+ */
+final class FileSystemBucket implements DataBucket {
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(FileSystemBucket.class);
+
+    private final URI uri;
+    private final RefCountedRegistry<URI, FileSystem> fileSystems;
+    private final PathResolver pathResolver;
+    private final DataBucketFactory<Path> pathFactory;
+    private final Scheduler scheduler;
+
+    FileSystemBucket(final URI uri,
+                     final RefCountedRegistry<URI, FileSystem> fileSystems,
+                     final PathResolver pathResolver,
+                     final DataBucketFactory<Path> pathFactory,
+                     final Scheduler scheduler) {
+        this.uri = uri;
+        this.fileSystems = fileSystems;
+        this.pathResolver = pathResolver;
+        this.pathFactory = pathFactory;
+        this.scheduler = scheduler;
+    }
+
+    private DataBucket acquire() throws IOException {
+        final FileSystem fileSystem = acquire(this.fileSystems, this.uri);
+        try {
+            return this.pathFactory.create(this.pathResolver.pathOf(fileSystem, this.uri));
+        } catch (final RuntimeException e) {
+            release();
+            throw e;
+        }
+    }
+
+    static FileSystem acquire(final RefCountedRegistry<URI, FileSystem> fileSystems,
+                              final URI uri) throws IOException {
+        try {
+            return fileSystems.acquire(uri).blockingGet();
+        } catch (final RuntimeException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private void release() {
+        this.fileSystems.release(this.uri);
+    }
+
+    private <T> Single<T> leased(final Function<DataBucket, Single<T>> operation) {
+        return Single.using(this::acquire, operation, bucket -> release());
+    }
+
+    private Completable leasedCompletable(final Function<DataBucket, Completable> operation) {
+        return Completable.using(this::acquire, operation, bucket -> release());
+    }
+
+    @Override
+    public Scheduler scheduler() {
+        return this.scheduler;
+    }
+
+    @Override
+    public DataMetadata metadata() throws IOException {
+        final DataBucket bucket = acquire();
+        try {
+            return bucket.metadata();
+        } finally {
+            release();
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        final DataBucket bucket;
+        try {
+            bucket = acquire();
+        } catch (final IOException e) {
+            logger.warn("Cannot open the file system of {}", this.uri, e);
+            return false;
+        }
+        try {
+            return bucket.isEmpty();
+        } finally {
+            release();
+        }
+    }
+
+    @Override
+    public void clear() throws IOException {
+        final DataBucket bucket = acquire();
+        try {
+            bucket.clear();
+        } finally {
+            release();
+        }
+    }
+
+    @Override
+    public InputStream readFrom() throws IOException {
+        return Channels.newInputStream(readChannel());
+    }
+
+    @Override
+    public ReadableByteChannel readChannel() throws IOException {
+        final DataBucket bucket = acquire();
+        try {
+            return new LeasedReadChannel(bucket.readChannel(), this::release);
+        } catch (final IOException | RuntimeException e) {
+            release();
+            throw e;
+        }
+    }
+
+    @Override
+    public <T> Single<T> readFrom(final Function<InputStream, T> function) {
+        return leased(bucket -> bucket.readFrom(function));
+    }
+
+    @Override
+    public Completable readFrom(final Consumer<InputStream> consumer) {
+        return leasedCompletable(bucket -> bucket.readFrom(consumer));
+    }
+
+    @Override
+    public <T> Single<T> readFromWithReader(final Function<Reader, T> function) {
+        return leased(bucket -> bucket.readFromWithReader(function));
+    }
+
+    @Override
+    public Completable readFromWithReader(final Consumer<Reader> consumer) {
+        return leasedCompletable(bucket -> bucket.readFromWithReader(consumer));
+    }
+
+    @Override
+    public <T> Single<T> readFromWithChannel(final Function<ReadableByteChannel, T> function) {
+        return leased(bucket -> bucket.readFromWithChannel(function));
+    }
+
+    @Override
+    public Completable readFromWithChannel(final Consumer<ReadableByteChannel> consumer) {
+        return leasedCompletable(bucket -> bucket.readFromWithChannel(consumer));
+    }
+
+    @Override
+    public <T> Single<T> readFromWithBuffer(final Function<ByteBuffer, T> function) {
+        return leased(bucket -> bucket.readFromWithBuffer(function));
+    }
+
+    @Override
+    public <T> Single<T> readRange(final long offset, final int length, final Function<ByteBuffer, T> function) {
+        return leased(bucket -> bucket.readRange(offset, length, function));
+    }
+
+    @Override
+    public Flowable<ByteBuffer> stream(final int chunkSize) {
+        return Flowable.using(this::acquire, bucket -> bucket.stream(chunkSize), bucket -> release());
+    }
+
+    @Override
+    public <T> Single<T> readMapped(final Function<List<ByteBuffer>, T> function) {
+        return leased(bucket -> bucket.readMapped(function));
+    }
+
+    @Override
+    public OutputStream writeTo() throws IOException {
+        return Channels.newOutputStream(writeChannel());
+    }
+
+    @Override
+    public WritableByteChannel writeChannel() throws IOException {
+        final DataBucket bucket = acquire();
+        try {
+            return new LeasedWriteChannel(bucket.writeChannel(), this::release);
+        } catch (final IOException | RuntimeException e) {
+            release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Completable writeTo(final Consumer<OutputStream> consumer) {
+        return leasedCompletable(bucket -> bucket.writeTo(consumer));
+    }
+
+    @Override
+    public <T> Single<T> writeTo(final Function<OutputStream, T> function) {
+        return leased(bucket -> bucket.writeTo(function));
+    }
+
+    @Override
+    public Completable writeToWithWriter(final Consumer<Writer> consumer) {
+        return leasedCompletable(bucket -> bucket.writeToWithWriter(consumer));
+    }
+
+    @Override
+    public <T> Single<T> writeToWithWriter(final Function<Writer, T> function) {
+        return leased(bucket -> bucket.writeToWithWriter(function));
+    }
+
+    @Override
+    public Completable writeToWithChannel(final Consumer<WritableByteChannel> consumer) {
+        return leasedCompletable(bucket -> bucket.writeToWithChannel(consumer));
+    }
+
+    @Override
+    public <T> Single<T> writeToWithChannel(final Function<WritableByteChannel, T> function) {
+        return leased(bucket -> bucket.writeToWithChannel(function));
+    }
+
+    @Override
+    public Completable writeToWithBuffers(final ByteBuffer... buffers) {
+        return leasedCompletable(bucket -> bucket.writeToWithBuffers(buffers));
+    }
+
+    @Override
+    public Completable write(final Flowable<ByteBuffer> buffers) {
+        return leasedCompletable(bucket -> bucket.write(buffers));
+    }
+
+    @Override
+    public Completable copyFrom(final DataSource dataBucket) {
+        if (equals(dataBucket)) {
+            logger.trace("Attempting to copy {} to itself. Skipping.", this.uri);
+            return Completable.complete();
+        }
+        return leasedCompletable(bucket -> bucket.copyFrom(dataBucket));
+    }
+
+    @Override
+    public String toString() {
+        return "FileSystemBucket{" +
+                "uri=" + this.uri +
+                ", fileSystems=" + this.fileSystems +
+                ", pathResolver=" + this.pathResolver +
+                ", pathFactory=" + this.pathFactory +
+                ", scheduler=" + this.scheduler +
+                "}";
+    }
+}
@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.uri;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Keeps the file system of the channel from being closed as idle until the channel is closed.
+ */
+final class LeasedReadChannel implements ReadableByteChannel {
+
+    private final ReadableByteChannel delegate;
+    private final Runnable release;
+    private boolean open;
+
+    LeasedReadChannel(final ReadableByteChannel delegate, final Runnable release) {
+        this.delegate = delegate;
+        this.release = release;
+        this.open = true;
+    }
+
+    @Override
+    public int read(final ByteBuffer destination) throws IOException {
+        return this.delegate.read(destination);
+    }
+
+    @Override
+    public boolean isOpen() {
+        return this.open;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (this.open) {
+            this.open = false;
+            try {
+                this.delegate.close();
+            } finally {
+                this.release.run();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "LeasedReadChannel{" +
+                "delegate=" + this.delegate +
+                ", open=" + this.open +
+                "}";
+    }
+}
@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.uri;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.net.URI;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.spi.FileSystemProvider;
+import java.util.Optional;
+
+/**
+ * Resolves URIs into paths. Paths on file systems other than the default one are only valid while their file
+ * system is open, so they are resolved again against a file system acquired from the registry for every use. The
+ * parsed entries are kept in a bounded cache, which outlives the file systems they are resolved against.
+ */
+final class PathResolver {
+
+    private static final String FILE_SCHEME = "file";
+    private static final String ARCHIVE_SEPARATOR = "!/";
+    private static final int MAX_RESOLUTIONS = 4096;
+
+    private final FileSystemProvider defaultProvider;
+
+    /**
+     * The entry of each archive URI within its file system, or nothing for URIs resolved by their provider.
+     */
+    private final Cache<URI, Optional<String>> entries;
+
+    PathResolver() {
+        this.defaultProvider = FileSystems.getDefault().provider();
+        this.entries = CacheBuilder.newBuilder()
+                .maximumSize(MAX_RESOLUTIONS)
+                .build();
+    }
+
+    /**
+     * Whether the URI is served by the default file system, which is never closed.
+     */
+    static boolean isDefault(final URI uri) {
+        final String scheme = uri.getScheme();
+        return (scheme == null) || FILE_SCHEME.equalsIgnoreCase(scheme);
+    }
+
+    Path resolveDefault(final URI uri) {
+        return this.defaultProvider.getPath(uri);
+    }
+
+    Path pathOf(final FileSystem fileSystem, final URI uri) {
+        Optional<String> entry = this.entries.getIfPresent(uri);
+        if (entry == null) {
+            entry = entryOf(uri);
+            this.entries.put(uri, entry);
+        }
+        return entry.isPresent() ? fileSystem.getPath(entry.get()) : fileSystem.provider().getPath(uri);
+    }
+
+    private static Optional<String> entryOf(final URI uri) {
+        if (uri.getRawSchemeSpecificPart().contains(ARCHIVE_SEPARATOR)) {
+            // archive entries (jar:file:/a.jar!/entry) share the file system of their archive, and escapes shift
+            // the separator, so the entry is looked up again in the decoded form
+            final String entry = uri.getSchemeSpecificPart();
+            return Optional.of(entry.substring(entry.indexOf(ARCHIVE_SEPARATOR) + 1));
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public String toString() {
+        return "PathResolver{" +
+                "defaultProvider=" + this.defaultProvider +
+                ", entries=" + this.entries.size() +
+                "}";
+    }
+}
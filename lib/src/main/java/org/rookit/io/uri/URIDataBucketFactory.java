@@ -21,19 +21,29 @@
  ******************************************************************************/
 package org.rookit.io.uri;
 
+import com.google.common.base.Suppliers;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.inject.Inject;
+import io.reactivex.Completable;
+import io.reactivex.Scheduler;
 import org.rookit.failsafe.Failsafe;
 import org.rookit.io.data.DataBucket;
 import org.rookit.io.data.DataBucketFactory;
-import org.rookit.utils.registry.Registry;
+import org.rookit.io.data.DataSource;
+import org.rookit.io.data.IOScheduler;
+import org.rookit.io.path.archive.ArchiveIndexService;
+import org.rookit.io.path.registry.RefCountedRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.net.URI;
 import java.nio.file.FileSystem;
-import java.nio.file.FileSystemNotFoundException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
 
 final class URIDataBucketFactory implements DataBucketFactory<URI> {
 
@@ -42,38 +52,91 @@ final class URIDataBucketFactory implements DataBucketFactory<URI> {
      */
     private static final Logger logger = LoggerFactory.getLogger(URIDataBucketFactory.class);
 
+    private static final String JAR_SCHEME = "jar";
+    private static final String FILE_SCHEME = "file";
+    private static final String ARCHIVE_SEPARATOR = "!/";
+
     private final Failsafe failsafe;
     private final DataBucketFactory<Path> pathDataBucketFactory;
-    private final Registry<URI, FileSystem> fileSystemRegistry;
+    private final RefCountedRegistry<URI, FileSystem> fileSystemRegistry;
+    private final PathResolver pathResolver;
+    private final ArchiveIndexService archiveIndexService;
+    private final Scheduler scheduler;
 
     @Inject
     private URIDataBucketFactory(final Failsafe failsafe,
                                  final DataBucketFactory<Path> pathFactory,
-                                 final Registry<URI, FileSystem> fileSystemRegistry) {
+                                 final RefCountedRegistry<URI, FileSystem> fileSystemRegistry,
+                                 final ArchiveIndexService archiveIndexService,
+                                 @IOScheduler final Scheduler scheduler) {
         this.failsafe = failsafe;
         this.pathDataBucketFactory = pathFactory;
         this.fileSystemRegistry = fileSystemRegistry;
+        this.pathResolver = new PathResolver();
+        this.archiveIndexService = archiveIndexService;
+        this.scheduler = scheduler;
     }
 
     @Override
     public DataBucket create(final URI uri) {
         this.failsafe.checkArgument().isNotNull(logger, uri, "uri");
-        return this.pathDataBucketFactory.create(createPath(uri));
+        if (JAR_SCHEME.equalsIgnoreCase(uri.getScheme())) {
+            final String specific = uri.getRawSchemeSpecificPart();
+            final int separator = specific.indexOf(ARCHIVE_SEPARATOR);
+            if (separator >= 0) {
+                final URI archive = URI.create(specific.substring(0, separator));
+                if (FILE_SCHEME.equalsIgnoreCase(archive.getScheme())) {
+                    final String entry = uri.getSchemeSpecificPart();
+                    return new ArchiveEntryBucket(this.archiveIndexService,
+                            Paths.get(archive),
+                            entry.substring(entry.indexOf(ARCHIVE_SEPARATOR) + ARCHIVE_SEPARATOR.length()),
+                            Suppliers.memoize(() -> fileSystemBucket(uri)),
+                            this.scheduler);
+                }
+            }
+        }
+        if (PathResolver.isDefault(uri)) {
+            return this.pathDataBucketFactory.create(this.pathResolver.resolveDefault(uri));
+        }
+        return fileSystemBucket(uri);
     }
 
-    private Path createPath(final URI uri) {
-        try {
-            return Paths.get(uri);
-        } catch (final FileSystemNotFoundException e) {
-            logger.debug("Unsupported Filesystem for URI: {}.", uri);
+    private DataBucket fileSystemBucket(final URI uri) {
+        return new FileSystemBucket(uri, this.fileSystemRegistry, this.pathResolver, this.pathDataBucketFactory,
+                this.scheduler);
+    }
 
-            // Fetch the URI from our custom providers
-            return this.fileSystemRegistry.fetch(uri)
-                    .map(FileSystem::provider)
-                    .map(provider -> provider.getPath(uri))
-                    .blockingGet();
+    @Override
+    public Completable copyAll(final Map<URI, ? extends DataSource> sources) {
+        return Completable.defer(() -> {
+            final Map<Path, DataSource> pathSources = Maps.newLinkedHashMapWithExpectedSize(sources.size());
+            // the file systems of the targets are held until the whole copy is over
+            final List<URI> acquired = Lists.newArrayList();
+            try {
+                for (final Map.Entry<URI, ? extends DataSource> entry : sources.entrySet()) {
+                    pathSources.put(createPath(entry.getKey(), acquired), entry.getValue());
+                }
+            } catch (final IOException | RuntimeException e) {
+                release(acquired);
+                throw e;
+            }
+            return this.pathDataBucketFactory.copyAll(pathSources).doFinally(() -> release(acquired));
+        });
+    }
+
+    private Path createPath(final URI uri, final List<URI> acquired) throws IOException {
+        if (PathResolver.isDefault(uri)) {
+            return this.pathResolver.resolveDefault(uri);
         }
+        final FileSystem fileSystem = FileSystemBucket.acquire(this.fileSystemRegistry, uri);
+        acquired.add(uri);
+        return this.pathResolver.pathOf(fileSystem, uri);
+    }
 
+    private void release(final List<URI> acquired) {
+        for (final URI uri : acquired) {
+            this.fileSystemRegistry.release(uri);
+        }
     }
 
     @Override
@@ -87,6 +150,9 @@ final class URIDataBucketFactory implements DataBucketFactory<URI> {
                 "failsafe=" + this.failsafe +
                 ", pathDataBucketFactory=" + this.pathDataBucketFactory +
                 ", fileSystemRegistry=" + this.fileSystemRegistry +
+                ", pathResolver=" + this.pathResolver +
+                ", archiveIndexService=" + this.archiveIndexService +
+                ", scheduler=" + this.scheduler +
                 "}";
     }
 }
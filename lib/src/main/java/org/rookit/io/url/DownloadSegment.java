@@ -0,0 +1,65 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.url;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+final class DownloadSegment {
+
+    private final long start;
+    private final long end;
+    private final AtomicLong written;
+
+    DownloadSegment(final long start, final long end) {
+        this.start = start;
+        this.end = end;
+        this.written = new AtomicLong();
+    }
+
+    /**
+     * The first byte not yet written, so that a retry resumes where the failed attempt stopped.
+     */
+    long position() {
+        return this.start + this.written.get();
+    }
+
+    long end() {
+        return this.end;
+    }
+
+    boolean isComplete() {
+        return position() > this.end;
+    }
+
+    void advance(final long count) {
+        this.written.addAndGet(count);
+    }
+
+    @Override
+    public String toString() {
+        return "DownloadSegment{" +
+                "start=" + this.start +
+                ", end=" + this.end +
+                ", written=" + this.written +
+                "}";
+    }
+}
@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.url;
+
+import org.immutables.value.Value;
+
+import java.time.Duration;
+
+@Value.Immutable
+public interface HttpConfig {
+
+    @Value.Default
+    default Duration connectTimeout() {
+        return Duration.ofSeconds(10);
+    }
+
+    @Value.Default
+    default Duration readTimeout() {
+        return Duration.ofSeconds(30);
+    }
+
+    @Value.Default
+    default Duration writeTimeout() {
+        return Duration.ofSeconds(30);
+    }
+
+    @Value.Default
+    default int maxIdleConnections() {
+        return 32;
+    }
+
+    @Value.Default
+    default Duration keepAlive() {
+        return Duration.ofMinutes(5);
+    }
+
+    @Value.Default
+    default int maxRequests() {
+        return 128;
+    }
+
+    /**
+     * Requests to the same host beyond this limit are queued by the client's dispatcher.
+     */
+    @Value.Default
+    default int maxRequestsPerHost() {
+        return 16;
+    }
+
+    /**
+     * Total bytes of response bodies kept for revalidation. The least recently read ones are dropped beyond it.
+     */
+    @Value.Default
+    default long validatedCopyCapacity() {
+        return 256L * 1024L * 1024L;
+    }
+
+}
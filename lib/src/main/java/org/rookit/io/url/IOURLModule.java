@@ -23,12 +23,20 @@ package org.rookit.io.url;
 
 import com.google.inject.AbstractModule;
 import com.google.inject.Module;
+import com.google.inject.Provides;
 import com.google.inject.Singleton;
 import com.google.inject.TypeLiteral;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
 import org.rookit.io.data.DataBucketFactory;
 
 import java.net.URL;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
 
+@SuppressWarnings("MethodMayBeStatic")
 public final class IOURLModule extends AbstractModule {
 
     private static final Module MODULE = new IOURLModule();
@@ -43,5 +51,28 @@ public final class IOURLModule extends AbstractModule {
     @Override
     protected void configure() {
         bind(new TypeLiteral<DataBucketFactory<URL>>() {}).to(URLDataBucketFactory.class).in(Singleton.class);
+        bind(ValidatedCopyStore.class).in(Singleton.class);
+        bind(HttpConfig.class).toInstance(ImmutableHttpConfig.builder().build());
+        bind(DownloadConfig.class).toInstance(ImmutableDownloadConfig.builder().build());
+        bind(URLDownloader.class).to(SegmentedURLDownloader.class).in(Singleton.class);
+    }
+
+    @Provides
+    @Singleton
+    @IOHttpClient
+    OkHttpClient httpClient(final HttpConfig config) {
+        final Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(config.maxRequests());
+        dispatcher.setMaxRequestsPerHost(config.maxRequestsPerHost());
+
+        return new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(config.maxIdleConnections(), config.keepAlive().toMillis(),
+                        TimeUnit.MILLISECONDS))
+                .dispatcher(dispatcher)
+                .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .connectTimeout(config.connectTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                .readTimeout(config.readTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                .writeTimeout(config.writeTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                .build();
     }
 }
@@ -0,0 +1,327 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.url;
+
+import io.reactivex.Completable;
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
+import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Function;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.rookit.failsafe.Failsafe;
+import org.rookit.io.data.DataBucket;
+import org.rookit.io.data.DataMetadata;
+import org.rookit.io.data.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.util.Date;
+import java.util.Optional;
+import java.util.OptionalLong;
+
+final class OkHttpDataBucket implements DataBucket {
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(OkHttpDataBucket.class);
+
+    private static final int HTTP_RANGE_NOT_SATISFIABLE = 416;
+    private static final long UPLOAD_BUFFER_SIZE = 64L * 1024L;
+
+    private final Failsafe failsafe;
+    private final URL url;
+    private final OkHttpClient client;
+    private final Charset charset;
+    private final Scheduler scheduler;
+    private final ValidatedCopyStore store;
+
+    OkHttpDataBucket(final Failsafe failsafe,
+                     final URL url,
+                     final OkHttpClient client,
+                     final Charset charset,
+                     final Scheduler scheduler,
+                     final ValidatedCopyStore store) {
+        this.failsafe = failsafe;
+        this.url = url;
+        this.client = client;
+        this.charset = charset;
+        this.scheduler = scheduler;
+        this.store = store;
+    }
+
+    @Override
+    public Scheduler scheduler() {
+        return this.scheduler;
+    }
+
+    @Override
+    public void clear() throws IOException {
+        // the remote resource is not ours to delete, only the local validated copy is dropped
+        logger.warn("Cannot clear a URL referenced resource.");
+        this.store.invalidate(this.url.toString());
+    }
+
+    @Override
+    public boolean isEmpty() {
+        try {
+            final DataMetadata metadata = metadata();
+            if (!metadata.exists()) {
+                return true;
+            }
+            final OptionalLong size = metadata.size();
+            return size.isPresent() ? (size.getAsLong() == 0L) : !hasContent();
+        } catch (final IOException e) {
+            final String errMsg = String.format("Error while trying to read from URL '%s'.", this.url);
+            logger.warn(errMsg, e);
+            return false;
+        }
+    }
+
+    private boolean hasContent() throws IOException {
+        // the size is unknown, so reading the first byte is the only way to tell
+        try (final InputStream read = readFrom()) {
+            return read.read() != -1;
+        }
+    }
+
+    private Request.Builder request() {
+        return new Request.Builder().url(this.url);
+    }
+
+    private static boolean isAbsent(final Response response) {
+        return (response.code() == HttpURLConnection.HTTP_NOT_FOUND) || (response.code() == HttpURLConnection.HTTP_GONE);
+    }
+
+    @SuppressWarnings("boxing")
+    private IOException failure(final Request request, final Response response) {
+        if (isAbsent(response)) {
+            return new FileNotFoundException(this.url.toString());
+        }
+        return new IOException(String.format("%s %s failed with %d: %s", request.method(), request.url(),
+                response.code(), response.message()));
+    }
+
+    @Override
+    public DataMetadata metadata() throws IOException {
+        final Request request = request().head().build();
+        try (final Response response = this.client.newCall(request).execute()) {
+            if (isAbsent(response)) {
+                return DataMetadata.absent();
+            }
+            if (!response.isSuccessful()) {
+                throw failure(request, response);
+            }
+            return toMetadata(response);
+        }
+    }
+
+    private static DataMetadata toMetadata(final Response response) {
+        final String length = response.header("Content-Length");
+        final Date lastModified = response.headers().getDate("Last-Modified");
+        return DataMetadata.of(length == null ? OptionalLong.empty() : OptionalLong.of(Long.parseLong(length)),
+                Optional.ofNullable(lastModified).map(Date::toInstant));
+    }
+
+    @Override
+    public InputStream readFrom() throws IOException {
+        return openBody().stream();
+    }
+
+    @Override
+    public ReadableByteChannel readChannel() throws IOException {
+        return Channels.newChannel(readFrom());
+    }
+
+    private HttpBody openBody() throws IOException {
+        final String key = this.url.toString();
+        final Optional<ValidatedCopy> copy = this.store.open(key);
+        final Request.Builder builder = request();
+        copy.ifPresent(local -> local.validators().applyTo(builder::header));
+        final Request request = builder.build();
+        Response response = null;
+        try {
+            response = this.client.newCall(request).execute();
+            if (copy.isPresent() && (response.code() == HttpURLConnection.HTTP_NOT_MODIFIED)) {
+                logger.debug("{} was not modified. Reading the local copy.", this.url);
+                response.close();
+                return new HttpBody(copy.get().body(), copy.get().size());
+            }
+            if (copy.isPresent()) {
+                copy.get().close();
+            }
+            if (!response.isSuccessful()) {
+                if (isAbsent(response)) {
+                    // the resource is gone, so the local copy is of no further use
+                    this.store.invalidate(key);
+                }
+                throw failure(request, response);
+            }
+            final ResponseBody body = response.body();
+            final Validators validators = Validators.of(response.header("ETag"), response.header("Last-Modified"));
+            if (validators.isEmpty()) {
+                // the resource changed and can no longer be revalidated
+                this.store.invalidate(key);
+                return new HttpBody(body.byteStream(), body.contentLength());
+            }
+            return new HttpBody(this.store.store(key, body.byteStream(), validators, body.contentLength()),
+                    body.contentLength());
+        } catch (final IOException | RuntimeException e) {
+            if (copy.isPresent()) {
+                copy.get().close();
+            }
+            if (response != null) {
+                response.close();
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public <T> Single<T> readFromWithBuffer(final Function<ByteBuffer, T> function) {
+        return Single.fromCallable(() -> {
+            final HttpBody body = openBody();
+            try (final InputStream input = body.stream()) {
+                return function.apply(StreamBuffers.read(input, body.length()));
+            }
+        }).subscribeOn(this.scheduler);
+    }
+
+    @SuppressWarnings("boxing")
+    @Override
+    public <T> Single<T> readRange(final long offset, final int length, final Function<ByteBuffer, T> function) {
+        this.failsafe.checkArgument().isNotNegative(logger, offset, "offset");
+        this.failsafe.checkArgument().isNotNegative(logger, length, "length");
+        return Single.fromCallable(() -> {
+            if (length <= 0) {
+                return function.apply(ByteBuffer.allocate(0));
+            }
+            final Request request = request()
+                    .header("Range", String.format("bytes=%d-%d", offset, (offset + length) - 1L))
+                    .build();
+            try (final Response response = this.client.newCall(request).execute()) {
+                if (response.code() == HTTP_RANGE_NOT_SATISFIABLE) {
+                    // the offset is past the end of the resource
+                    return function.apply(ByteBuffer.allocate(0));
+                }
+                if (!response.isSuccessful()) {
+                    throw failure(request, response);
+                }
+                final InputStream input = response.body().byteStream();
+                if (response.code() == HttpURLConnection.HTTP_PARTIAL) {
+                    return function.apply(StreamBuffers.readFully(Channels.newChannel(input), length));
+                }
+                logger.debug("{} ignored the range request. Skipping {} bytes instead.", this.url, offset);
+                return function.apply(StreamBuffers.readSkipping(input, offset, length));
+            }
+        }).subscribeOn(this.scheduler);
+    }
+
+    private Reader toReader(final InputStream stream) {
+        return new InputStreamReader(stream, this.charset);
+    }
+
+    private Writer toWriter(final OutputStream stream) {
+        return new OutputStreamWriter(stream, this.charset);
+    }
+
+    @Override
+    public <T> Single<T> readFromWithReader(final Function<Reader, T> function) {
+        return readFrom(stream -> {
+            return function.apply(toReader(stream));
+        });
+    }
+
+    @Override
+    public Completable readFromWithReader(final Consumer<Reader> consumer) {
+        return readFrom(stream -> {
+            consumer.accept(toReader(stream));
+        });
+    }
+
+    @Override
+    public OutputStream writeTo() throws IOException {
+        this.store.invalidate(this.url.toString());
+        return new UploadOutputStream(this.client, request(), UPLOAD_BUFFER_SIZE);
+    }
+
+    @Override
+    public Completable writeToWithWriter(final Consumer<Writer> consumer) {
+        return writeTo(stream -> {
+            consumer.accept(toWriter(stream));
+        });
+    }
+
+    @Override
+    public <T> Single<T> writeToWithWriter(final Function<Writer, T> function) {
+        return writeTo(stream -> {
+            return function.apply(toWriter(stream));
+        });
+    }
+
+    @Override
+    public Completable copyFrom(final DataSource dataBucket) {
+        if (equals(dataBucket)) {
+            logger.trace("Attempting to copy write {} to itself. Skipping.", this.url);
+            return Completable.complete();
+        }
+        // streamed directly, so that a known size is sent as a fixed length instead of in chunks
+        return Completable.fromAction(() -> {
+            this.store.invalidate(this.url.toString());
+            final Request request = request().post(new SourceRequestBody(dataBucket, dataBucket.size())).build();
+            try (final Response response = this.client.newCall(request).execute()) {
+                if (!response.isSuccessful()) {
+                    throw failure(request, response);
+                }
+            }
+        }).subscribeOn(this.scheduler);
+    }
+
+    @Override
+    public String toString() {
+        return "OkHttpDataBucket{" +
+                "failsafe=" + this.failsafe +
+                ", url=" + this.url +
+                ", client=" + this.client +
+                ", charset=" + this.charset +
+                ", scheduler=" + this.scheduler +
+                ", store=" + this.store +
+                "}";
+    }
+}
@@ -0,0 +1,209 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.url;
+
+import com.google.common.collect.ImmutableList;
+import com.google.inject.Inject;
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.rookit.io.data.DataBucket;
+import org.rookit.io.data.DataBucketFactory;
+import org.rookit.io.data.IOScheduler;
+import org.rookit.io.path.pool.TemporaryPathPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+final class SegmentedURLDownloader implements URLDownloader {
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(SegmentedURLDownloader.class);
+
+    private final OkHttpClient client;
+    private final TemporaryPathPool pool;
+    private final DataBucketFactory<Path> fileFactory;
+    private final DownloadConfig config;
+    private final Scheduler scheduler;
+
+    @Inject
+    private SegmentedURLDownloader(@IOHttpClient final OkHttpClient client,
+                                   final TemporaryPathPool pool,
+                                   final DataBucketFactory<Path> fileFactory,
+                                   final DownloadConfig config,
+                                   @IOScheduler final Scheduler scheduler) {
+        this.client = client;
+        this.pool = pool;
+        this.fileFactory = fileFactory;
+        this.config = config;
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public Single<DataBucket> download(final URL url) {
+        return Single.fromCallable(() -> probe(url))
+                .flatMap(head -> {
+                    final Path file = this.pool.pollFile();
+                    // a successful download hands the file over to the bucket
+                    return download(url, head, file)
+                            .toSingle(() -> this.fileFactory.create(file))
+                            .doOnError(error -> release(file))
+                            .doOnDispose(() -> release(file));
+                })
+                .subscribeOn(this.scheduler);
+    }
+
+    private void release(final Path file) {
+        try {
+            this.pool.offer(file);
+        } catch (final IOException e) {
+            logger.warn("Cannot return {} to the pool", file, e);
+        }
+    }
+
+    @SuppressWarnings("boxing")
+    private Response probe(final URL url) throws IOException {
+        final Request request = new Request.Builder().url(url).head().build();
+        try (final Response response = this.client.newCall(request).execute()) {
+            if ((response.code() == HttpURLConnection.HTTP_NOT_FOUND)
+                    || (response.code() == HttpURLConnection.HTTP_GONE)) {
+                throw new FileNotFoundException(url.toString());
+            }
+            if (!response.isSuccessful()) {
+                throw new IOException(String.format("HEAD %s failed with %d: %s", url, response.code(),
+                        response.message()));
+            }
+            return response;
+        }
+    }
+
+    private Completable download(final URL url, final Response head, final Path file) {
+        final String length = head.header("Content-Length");
+        final boolean ranges = "bytes".equalsIgnoreCase(head.header("Accept-Ranges"));
+        final long size = (length == null) ? -1L : Long.parseLong(length);
+        final List<DownloadSegment> segments = split(size);
+        if (!ranges || (segments.size() < 2)) {
+            logger.debug("Downloading {} as a single stream", url);
+            // every attempt starts over from an empty file, as there is no way to resume without ranges
+            return Completable.using(() -> FileChannel.open(file, StandardOpenOption.WRITE),
+                    channel -> Completable.fromAction(() -> {
+                        channel.truncate(0L);
+                        fetch(url, null, channel, new DownloadSegment(0L, Long.MAX_VALUE));
+                    }).retry(this.config.retries()), FileChannel::close);
+        }
+        logger.debug("Downloading {} ({} bytes) in {} segments", url, size, segments.size());
+        // pins the version, so that a resource that changes mid-download fails instead of being mixed
+        final String version = head.header("ETag");
+        return Completable.using(() -> FileChannel.open(file, StandardOpenOption.WRITE),
+                channel -> Flowable.fromIterable(segments)
+                        .flatMapCompletable(segment -> Completable
+                                .fromAction(() -> fetch(url, version, channel, segment))
+                                .subscribeOn(this.scheduler)
+                                .retry(this.config.retries()), false, segments.size()),
+                FileChannel::close);
+    }
+
+    private List<DownloadSegment> split(final long size) {
+        if (size < (2L * this.config.minSegmentSize())) {
+            return ImmutableList.of();
+        }
+        final long count = Math.min(this.config.segments(), size / this.config.minSegmentSize());
+        final long segmentSize = (size + count - 1L) / count;
+        final ImmutableList.Builder<DownloadSegment> segments = ImmutableList.builder();
+        for (long start = 0L; start < size; start += segmentSize) {
+            segments.add(new DownloadSegment(start, Math.min(start + segmentSize, size) - 1L));
+        }
+        return segments.build();
+    }
+
+    @SuppressWarnings("boxing")
+    private void fetch(final URL url,
+                       final String version,
+                       final FileChannel channel,
+                       final DownloadSegment segment) throws IOException {
+        if (segment.isComplete()) {
+            return;
+        }
+        final boolean ranged = segment.end() != Long.MAX_VALUE;
+        final Request.Builder builder = new Request.Builder().url(url);
+        if (ranged) {
+            builder.header("Range", String.format("bytes=%d-%d", segment.position(), segment.end()));
+            if (version != null) {
+                builder.header("If-Range", version);
+            }
+        }
+        final Request request = builder.build();
+        try (final Response response = this.client.newCall(request).execute()) {
+            final int expected = ranged ? HttpURLConnection.HTTP_PARTIAL : HttpURLConnection.HTTP_OK;
+            if (response.code() != expected) {
+                throw new IOException(String.format("GET %s (%s) answered %d: %s", url, segment,
+                        response.code(), response.message()));
+            }
+            try (final InputStream input = response.body().byteStream()) {
+                write(Channels.newChannel(input), channel, segment);
+            }
+        }
+    }
+
+    private void write(final ReadableByteChannel input,
+                       final FileChannel channel,
+                       final DownloadSegment segment) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(this.config.bufferSize());
+        while (input.read(buffer) != -1) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                // positional writes, so all segments share the same channel
+                segment.advance(channel.write(buffer, segment.position()));
+            }
+            buffer.clear();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SegmentedURLDownloader{" +
+                "client=" + this.client +
+                ", pool=" + this.pool +
+                ", fileFactory=" + this.fileFactory +
+                ", config=" + this.config +
+                ", scheduler=" + this.scheduler +
+                "}";
+    }
+}
@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.url;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Source;
+import org.rookit.io.data.DataSource;
+
+import java.io.IOException;
+import java.util.OptionalLong;
+
+/**
+ * Streams a {@link DataSource} as a request body, with a fixed length when its size is known.
+ */
+final class SourceRequestBody extends RequestBody {
+
+    private final DataSource source;
+    private final long length;
+
+    SourceRequestBody(final DataSource source, final OptionalLong length) {
+        this.source = source;
+        this.length = length.orElse(-1L);
+    }
+
+    @Override
+    public MediaType contentType() {
+        return UploadOutputStream.OCTET_STREAM;
+    }
+
+    @Override
+    public long contentLength() {
+        return this.length;
+    }
+
+    @Override
+    public void writeTo(final BufferedSink sink) throws IOException {
+        // opened on every write, as the client may replay the body
+        try (final Source content = Okio.source(this.source.readFrom())) {
+            sink.writeAll(content);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SourceRequestBody{" +
+                "source=" + this.source +
+                ", length=" + this.length +
+                "}";
+    }
+}
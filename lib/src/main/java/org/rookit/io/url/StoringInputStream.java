@@ -0,0 +1,149 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.url;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Copies everything read from the response into a local file, which is only committed once the whole body
+ * was read. The copy is dropped as soon as it outgrows the store, while the response keeps being read.
+ */
+final class StoringInputStream extends FilterInputStream {
+
+    private final ValidatedCopyStore store;
+    private final String key;
+    private final Path part;
+    private final OutputStream copy;
+    private final Validators validators;
+    private final long length;
+    private final long limit;
+    private long copied;
+    private boolean dropped;
+    private boolean complete;
+    private boolean closed;
+
+    StoringInputStream(final InputStream response,
+                       final ValidatedCopyStore store,
+                       final String key,
+                       final Path part,
+                       final Validators validators,
+                       final long length,
+                       final long limit) throws IOException {
+        super(response);
+        this.store = store;
+        this.key = key;
+        this.part = part;
+        this.copy = new BufferedOutputStream(Files.newOutputStream(part));
+        this.validators = validators;
+        this.length = length;
+        this.limit = limit;
+    }
+
+    @Override
+    public int read() throws IOException {
+        final int read = super.read();
+        if (read == -1) {
+            this.complete = true;
+        } else {
+            copy(new byte[] {(byte) read}, 0, 1);
+        }
+        return read;
+    }
+
+    @Override
+    public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+        final int read = super.read(bytes, offset, length);
+        if (read == -1) {
+            this.complete = true;
+        } else {
+            copy(bytes, offset, read);
+        }
+        return read;
+    }
+
+    private void copy(final byte[] bytes, final int offset, final int length) throws IOException {
+        this.copied += length;
+        if (this.dropped) {
+            return;
+        }
+        if (this.copied > this.limit) {
+            // a body larger than the store would only evict everything else
+            this.dropped = true;
+            this.copy.close();
+            Files.deleteIfExists(this.part);
+        } else {
+            this.copy.write(bytes, offset, length);
+        }
+    }
+
+    @Override
+    public long skip(final long count) throws IOException {
+        // skipped bytes still have to reach the copy
+        final byte[] skipped = new byte[(int) Math.min(count, 8192L)];
+        final int read = read(skipped, 0, skipped.length);
+        return Math.max(read, 0);
+    }
+
+    @Override
+    public String toString() {
+        return "StoringInputStream{" +
+                "key=" + this.key +
+                ", part=" + this.part +
+                ", validators=" + this.validators +
+                ", length=" + this.length +
+                ", limit=" + this.limit +
+                ", copied=" + this.copied +
+                ", dropped=" + this.dropped +
+                ", complete=" + this.complete +
+                "}";
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!this.closed) {
+            this.closed = true;
+            try {
+                super.close();
+            } finally {
+                this.copy.close();
+                // readers that stop at the announced length never see the end of the stream
+                if (!this.dropped && (this.complete || (this.copied == this.length))) {
+                    this.store.commit(this.key, this.part, this.validators);
+                } else {
+                    // a partially read or dropped body cannot be served later on
+                    Files.deleteIfExists(this.part);
+                }
+            }
+        }
+    }
+}
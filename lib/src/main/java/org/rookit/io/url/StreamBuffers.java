@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.url;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.OptionalLong;
+
+final class StreamBuffers {
+
+    private static final int INITIAL_BUFFER_SIZE = 8192;
+
+    private StreamBuffers() {}
+
+    static ByteBuffer read(final InputStream input, final OptionalLong length) throws IOException {
+        final ReadableByteChannel channel = Channels.newChannel(input);
+        if (!length.isPresent() || (length.getAsLong() > Integer.MAX_VALUE)) {
+            // unknown length, so the buffer has to grow as the content is read
+            return readGrowing(channel);
+        }
+        return readFully(channel, (int) length.getAsLong());
+    }
+
+    static ByteBuffer readSkipping(final InputStream input,
+                                   final long offset,
+                                   final int length) throws IOException {
+        long skipped = 0L;
+        while (skipped < offset) {
+            final long step = input.skip(offset - skipped);
+            if (step > 0L) {
+                skipped += step;
+            } else if (input.read() != -1) {
+                skipped++;
+            } else {
+                return ByteBuffer.allocate(0);
+            }
+        }
+        return readFully(Channels.newChannel(input), length);
+    }
+
+    static ByteBuffer readFully(final ReadableByteChannel channel, final int length) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining() && (channel.read(buffer) != -1)) {
+            // keep reading until the buffer is full or the stream ends
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    static ByteBuffer readGrowing(final ReadableByteChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+        while (channel.read(buffer) != -1) {
+            if (!buffer.hasRemaining()) {
+                final ByteBuffer grown = ByteBuffer.allocate(buffer.capacity() << 1);
+                buffer.flip();
+                grown.put(buffer);
+                buffer = grown;
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
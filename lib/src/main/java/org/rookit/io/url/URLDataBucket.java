@@ -22,15 +22,19 @@
 package org.rookit.io.url;
 
 import io.reactivex.Completable;
+import io.reactivex.Scheduler;
 import io.reactivex.Single;
 import io.reactivex.functions.Consumer;
 import io.reactivex.functions.Function;
-import org.apache.commons.io.IOUtils;
+import org.rookit.failsafe.Failsafe;
+import org.rookit.io.data.CopyEngine;
 import org.rookit.io.data.DataBucket;
+import org.rookit.io.data.DataMetadata;
 import org.rookit.io.data.DataSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -40,7 +44,13 @@ import java.io.Reader;
 import java.io.Writer;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.Charset;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.OptionalLong;
 
 final class URLDataBucket implements DataBucket {
 
@@ -49,12 +59,27 @@ final class URLDataBucket implements DataBucket {
      */
     private static final Logger logger = LoggerFactory.getLogger(URLDataBucket.class);
 
+    private final Failsafe failsafe;
     private final URL url;
     private final Charset charset;
-
-    URLDataBucket(final URL url, final Charset charset) {
+    private final Scheduler scheduler;
+    private final CopyEngine copyEngine;
+
+    URLDataBucket(final Failsafe failsafe,
+                  final URL url,
+                  final Charset charset,
+                  final Scheduler scheduler,
+                  final CopyEngine copyEngine) {
+        this.failsafe = failsafe;
         this.url = url;
         this.charset = charset;
+        this.scheduler = scheduler;
+        this.copyEngine = copyEngine;
+    }
+
+    @Override
+    public Scheduler scheduler() {
+        return this.scheduler;
     }
 
     @Override
@@ -65,8 +90,13 @@ final class URLDataBucket implements DataBucket {
 
     @Override
     public boolean isEmpty() {
-        try (final InputStream read = readFrom()) {
-            return read.read() != -1;
+        try {
+            final DataMetadata metadata = metadata();
+            if (!metadata.exists()) {
+                return true;
+            }
+            final OptionalLong size = metadata.size();
+            return size.isPresent() ? (size.getAsLong() == 0L) : !hasContent();
         } catch (final IOException e) {
             final String errMsg = String.format("Error while trying to read from URL '%s'.", this.url);
             logger.warn(errMsg, e);
@@ -74,6 +104,31 @@ final class URLDataBucket implements DataBucket {
         }
     }
 
+    private boolean hasContent() throws IOException {
+        // the size is unknown, so reading the first byte is the only way to tell
+        try (final InputStream read = readFrom()) {
+            return read.read() != -1;
+        }
+    }
+
+    @Override
+    public DataMetadata metadata() throws IOException {
+        final URLConnection connection = this.url.openConnection();
+        // these protocols only expose their headers once connected, so the stream is opened (and closed) anyway
+        try (final InputStream ignored = connection.getInputStream()) {
+            return toMetadata(connection);
+        } catch (final FileNotFoundException e) {
+            return DataMetadata.absent();
+        }
+    }
+
+    private static DataMetadata toMetadata(final URLConnection connection) {
+        final long length = connection.getContentLengthLong();
+        final long lastModified = connection.getLastModified();
+        return DataMetadata.of(length < 0L ? OptionalLong.empty() : OptionalLong.of(length),
+                lastModified == 0L ? Optional.empty() : Optional.of(Instant.ofEpochMilli(lastModified)));
+    }
+
     @Override
     public OutputStream writeTo() throws IOException {
         final URLConnection connection = this.url.openConnection();
@@ -108,19 +163,44 @@ final class URLDataBucket implements DataBucket {
         if (equals(dataBucket)) {
             logger.trace("Attempting to copy write {} to itself. Skipping.", this.url);
             return Completable.complete();
-        } else {
-            return dataBucket.readFrom(reader -> {
-                writeTo(writer -> {
-                    IOUtils.copy(reader, writer);
-                    // TODO this might be a problem
-                }).blockingAwait();
-            });
         }
+        return this.copyEngine.copy(dataBucket, this);
     }
 
     @Override
     public InputStream readFrom() throws IOException {
-        return this.url.openStream();
+        return openBody().stream();
+    }
+
+    @Override
+    public ReadableByteChannel readChannel() throws IOException {
+        return Channels.newChannel(readFrom());
+    }
+
+    private HttpBody openBody() throws IOException {
+        final URLConnection connection = this.url.openConnection();
+        return new HttpBody(connection.getInputStream(), connection.getContentLengthLong());
+    }
+
+    @Override
+    public <T> Single<T> readFromWithBuffer(final Function<ByteBuffer, T> function) {
+        return Single.fromCallable(() -> {
+            final HttpBody body = openBody();
+            try (final InputStream input = body.stream()) {
+                return function.apply(StreamBuffers.read(input, body.length()));
+            }
+        }).subscribeOn(this.scheduler);
+    }
+
+    @Override
+    public <T> Single<T> readRange(final long offset, final int length, final Function<ByteBuffer, T> function) {
+        this.failsafe.checkArgument().isNotNegative(logger, offset, "offset");
+        this.failsafe.checkArgument().isNotNegative(logger, length, "length");
+        return Single.fromCallable(() -> {
+            try (final InputStream input = readFrom()) {
+                return function.apply(StreamBuffers.readSkipping(input, offset, length));
+            }
+        }).subscribeOn(this.scheduler);
     }
 
     @Override
@@ -140,8 +220,10 @@ final class URLDataBucket implements DataBucket {
     @Override
     public String toString() {
         return "URLDataBucket{" +
-                "url=" + this.url +
+                "failsafe=" + this.failsafe +
+                ", url=" + this.url +
                 ", charset=" + this.charset +
+                ", scheduler=" + this.scheduler +
                 "}";
     }
 }
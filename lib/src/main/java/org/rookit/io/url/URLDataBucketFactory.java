@@ -23,9 +23,17 @@ package org.rookit.io.url;
 
 import com.google.common.collect.Queues;
 import com.google.inject.Inject;
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Scheduler;
+import okhttp3.OkHttpClient;
 import org.rookit.failsafe.Failsafe;
+import org.rookit.io.data.CopyEngine;
+import org.rookit.io.data.CopyTask;
 import org.rookit.io.data.DataBucket;
 import org.rookit.io.data.DataBucketFactory;
+import org.rookit.io.data.DataSource;
+import org.rookit.io.data.IOScheduler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -34,6 +42,7 @@ import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.charset.Charset;
 import java.nio.file.Path;
+import java.util.Map;
 import java.util.Queue;
 
 final class URLDataBucketFactory implements DataBucketFactory<URL> {
@@ -47,29 +56,63 @@ final class URLDataBucketFactory implements DataBucketFactory<URL> {
     private final DataBucketFactory<URI> uriDataBucketFactory;
     private final Queue<Path> tempFiles;
     private final Charset charset;
+    private final Scheduler scheduler;
+    private final CopyEngine copyEngine;
+    private final ValidatedCopyStore store;
+    private final OkHttpClient client;
 
     @Inject
     private URLDataBucketFactory(final Failsafe failsafe,
                                  final DataBucketFactory<URI> uriDataBucketFactory,
-                                 final Charset charset) {
+                                 final Charset charset,
+                                 @IOScheduler final Scheduler scheduler,
+                                 final CopyEngine copyEngine,
+                                 final ValidatedCopyStore store,
+                                 @IOHttpClient final OkHttpClient client) {
         this.failsafe = failsafe;
         this.uriDataBucketFactory = uriDataBucketFactory;
         this.charset = charset;
+        this.scheduler = scheduler;
+        this.copyEngine = copyEngine;
+        this.store = store;
+        this.client = client;
         this.tempFiles = Queues.newLinkedBlockingDeque();
     }
 
     @Override
     public DataBucket create(final URL url) {
         this.failsafe.checkArgument().isNotNull(logger, url, "url");
+        if (isHttp(url)) {
+            // there is no file system provider for http, so these never resolve through the uri factory
+            return new OkHttpDataBucket(this.failsafe, url, this.client, this.charset, this.scheduler,
+                    this.store);
+        }
         try {
             return this.uriDataBucketFactory.create(url.toURI());
         } catch (final URISyntaxException e) {
             // since the URL protocol has some limitations in regards to our requirements,
             // we use this implementation only as fallback.
-            return new URLDataBucket(url, this.charset);
+            return new URLDataBucket(this.failsafe, url, this.charset, this.scheduler, this.copyEngine);
         }
     }
 
+    @Override
+    public Completable copyAll(final Map<URL, ? extends DataSource> sources) {
+        return this.copyEngine.copyAll(Flowable.fromIterable(sources.entrySet())
+                .map(entry -> CopyTask.of(entry.getValue(), create(entry.getKey()), deviceOf(entry.getKey()))));
+    }
+
+    private static Object deviceOf(final URL url) {
+        // remote resources are limited per server, local ones per protocol
+        final String authority = url.getAuthority();
+        return url.getProtocol() + "://" + ((authority == null) ? "" : authority);
+    }
+
+    private static boolean isHttp(final URL url) {
+        final String protocol = url.getProtocol();
+        return "http".equalsIgnoreCase(protocol) || "https".equalsIgnoreCase(protocol);
+    }
+
     @Override
     public void close() {
         // nothing to close
@@ -82,6 +125,10 @@ final class URLDataBucketFactory implements DataBucketFactory<URL> {
                 ", uriDataBucketFactory=" + this.uriDataBucketFactory +
                 ", tempFiles=" + this.tempFiles +
                 ", charset=" + this.charset +
+                ", scheduler=" + this.scheduler +
+                ", copyEngine=" + this.copyEngine +
+                ", store=" + this.store +
+                ", client=" + this.client +
                 "}";
     }
 }
@@ -0,0 +1,171 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.url;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Pipe;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Streams the written content as a chunked request body, through a bounded pipe drained by the client.
+ */
+final class UploadOutputStream extends OutputStream {
+
+    static final MediaType OCTET_STREAM = MediaType.parse("application/octet-stream");
+
+    private final Request request;
+    private final Pipe pipe;
+    private final AtomicBoolean sent;
+    private final OutputStream sink;
+    private final CompletableFuture<Response> response;
+    private boolean closed;
+
+    UploadOutputStream(final OkHttpClient client, final Request.Builder request, final long bufferSize) {
+        this.pipe = new Pipe(bufferSize);
+        this.sent = new AtomicBoolean();
+        this.request = request.post(new RequestBody() {
+            @Override
+            public MediaType contentType() {
+                return OCTET_STREAM;
+            }
+
+            @Override
+            public void writeTo(final BufferedSink sink) throws IOException {
+                // the pipe can only be drained once, so retries and redirects must fail instead of sending nothing
+                if (!UploadOutputStream.this.sent.compareAndSet(false, true)) {
+                    throw new IOException("The body of POST " + UploadOutputStream.this.request.url()
+                            + " is streamed and cannot be sent again");
+                }
+                sink.writeAll(UploadOutputStream.this.pipe.source());
+            }
+        }).build();
+        this.sink = Okio.buffer(this.pipe.sink()).outputStream();
+        this.response = new CompletableFuture<>();
+        client.newCall(this.request).enqueue(new Callback() {
+            @Override
+            public void onFailure(final Call call, final IOException e) {
+                abort();
+                UploadOutputStream.this.response.completeExceptionally(e);
+            }
+
+            @Override
+            public void onResponse(final Call call, final Response response) {
+                abort();
+                UploadOutputStream.this.response.complete(response);
+            }
+        });
+    }
+
+    private void abort() {
+        // unblocks the writer, which would otherwise wait for a reader that is gone
+        try {
+            this.pipe.source().close();
+        } catch (final IOException ignored) {
+            // closing a pipe source does not fail
+        }
+    }
+
+    private IOException failure(final IOException writeFailure) {
+        // a closed pipe only means that the call is over, so its own failure is the one worth reporting
+        if (this.response.isCompletedExceptionally()) {
+            try {
+                this.response.get();
+            } catch (final InterruptedException | ExecutionException e) {
+                return new IOException("POST " + this.request.url() + " failed", e.getCause());
+            }
+        }
+        return writeFailure;
+    }
+
+    @Override
+    public void write(final int value) throws IOException {
+        try {
+            this.sink.write(value);
+        } catch (final IOException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+        try {
+            this.sink.write(bytes, offset, length);
+        } catch (final IOException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        try {
+            this.sink.flush();
+        } catch (final IOException e) {
+            throw failure(e);
+        }
+    }
+
+    @SuppressWarnings("boxing")
+    @Override
+    public void close() throws IOException {
+        if (!this.closed) {
+            this.closed = true;
+            try {
+                this.sink.close();
+            } catch (final IOException e) {
+                throw failure(e);
+            }
+            try (final Response completed = this.response.get()) {
+                if (!completed.isSuccessful()) {
+                    throw new IOException(String.format("POST %s failed with %d: %s", this.request.url(),
+                            completed.code(), completed.message()));
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException(e.getMessage());
+            } catch (final ExecutionException e) {
+                throw new IOException("POST " + this.request.url() + " failed", e.getCause());
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "UploadOutputStream{" +
+                "request=" + this.request +
+                ", closed=" + this.closed +
+                "}";
+    }
+}
@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.url;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+final class ValidatedCopy implements Closeable {
+
+    private final Validators validators;
+    private final InputStream body;
+    private final long size;
+
+    ValidatedCopy(final Validators validators, final InputStream body, final long size) {
+        this.validators = validators;
+        this.body = body;
+        this.size = size;
+    }
+
+    Validators validators() {
+        return this.validators;
+    }
+
+    InputStream body() {
+        return this.body;
+    }
+
+    long size() {
+        return this.size;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.body.close();
+    }
+
+    @Override
+    public String toString() {
+        return "ValidatedCopy{" +
+                "validators=" + this.validators +
+                ", size=" + this.size +
+                "}";
+    }
+}
@@ -0,0 +1,233 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.url;
+
+import com.google.common.collect.Lists;
+import com.google.common.hash.Hashing;
+import com.google.inject.Inject;
+import org.rookit.io.path.PathConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+
+/**
+ * Keeps the last body of remote resources, together with the validators (ETag and Last-Modified) it was served
+ * with, so that later reads only have to revalidate it.
+ */
+final class ValidatedCopyStore {
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(ValidatedCopyStore.class);
+
+    private static final String DIRECTORY = "validated";
+    private static final String BODY = ".body";
+    private static final String VALIDATORS = ".properties";
+    private static final String PART = ".part";
+
+    private final PathConfig config;
+    private final HttpConfig httpConfig;
+
+    /**
+     * Sizes of the stored bodies by name, from the least to the most recently read, loaded from the directory on
+     * first use.
+     */
+    private Map<String, Long> sizes;
+    private long total;
+
+    @Inject
+    private ValidatedCopyStore(final PathConfig config, final HttpConfig httpConfig) {
+        this.config = config;
+        this.httpConfig = httpConfig;
+    }
+
+    private Path directory() throws IOException {
+        return Files.createDirectories(this.config.temporaryDirectory().resolve(DIRECTORY));
+    }
+
+    private static String nameOf(final String key) {
+        return Hashing.sha256().hashString(key, StandardCharsets.UTF_8).toString();
+    }
+
+    private Path entry(final String key, final String suffix) throws IOException {
+        return directory().resolve(nameOf(key) + suffix);
+    }
+
+    /**
+     * Opens the local copy before revalidating it, so that a concurrent update cannot swap the body after the
+     * server confirmed it.
+     */
+    Optional<ValidatedCopy> open(final String key) throws IOException {
+        final Path sidecar = entry(key, VALIDATORS);
+        final Path body = entry(key, BODY);
+        try (final InputStream input = Files.newInputStream(sidecar)) {
+            final Properties properties = new Properties();
+            properties.load(input);
+            final Validators validators = Validators.fromProperties(properties);
+            final InputStream stream = Files.newInputStream(body);
+            // the modification time of the body keeps the order of access across restarts
+            Files.setLastModifiedTime(body, FileTime.from(Instant.now()));
+            accessed(nameOf(key));
+            return Optional.of(new ValidatedCopy(validators, stream, Files.size(body)));
+        } catch (final NoSuchFileException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Tees the response into a local copy, unless the body does not fit the store, in which case it is read
+     * directly.
+     */
+    InputStream store(final String key,
+                      final InputStream response,
+                      final Validators validators,
+                      final long length) throws IOException {
+        final long capacity = this.httpConfig.validatedCopyCapacity();
+        if (length > capacity) {
+            logger.debug("{} does not fit the validated copies. Not storing it.", key);
+            invalidate(key);
+            return response;
+        }
+        final Path part = Files.createTempFile(directory(), "", PART);
+        return new StoringInputStream(response, this, key, part, validators, length, capacity);
+    }
+
+    void commit(final String key, final Path part, final Validators validators) throws IOException {
+        final Path sidecarPart = Files.createTempFile(directory(), "", PART);
+        try (final OutputStream output = Files.newOutputStream(sidecarPart)) {
+            validators.toProperties().store(output, key);
+        }
+        final long size = Files.size(part);
+        // the sidecar is dropped first, so that a reader never pairs the new body with stale validators
+        Files.deleteIfExists(entry(key, VALIDATORS));
+        Files.move(part, entry(key, BODY), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.move(sidecarPart, entry(key, VALIDATORS), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        logger.debug("Stored a validated copy of {} with {}", key, validators);
+        stored(nameOf(key), size);
+    }
+
+    private Map<String, Long> sizes() throws IOException {
+        if (this.sizes == null) {
+            final List<Path> bodies = Lists.newArrayList();
+            try (final DirectoryStream<Path> entries = Files.newDirectoryStream(directory(), "*" + BODY)) {
+                for (final Path body : entries) {
+                    bodies.add(body);
+                }
+            }
+            bodies.sort(Comparator.comparing(ValidatedCopyStore::lastAccessOf));
+            final Map<String, Long> sizes = new LinkedHashMap<>(16, 0.75f, true);
+            for (final Path body : bodies) {
+                final String name = body.getFileName().toString();
+                final long size = sizeOf(body);
+                sizes.put(name.substring(0, name.length() - BODY.length()), size);
+                this.total += size;
+            }
+            this.sizes = sizes;
+        }
+        return this.sizes;
+    }
+
+    private synchronized void accessed(final String name) throws IOException {
+        sizes().get(name);
+    }
+
+    private synchronized void stored(final String name, final long size) throws IOException {
+        final Long previous = sizes().put(name, size);
+        this.total += size - (previous == null ? 0L : previous);
+        evict();
+    }
+
+    private synchronized void removed(final String name) throws IOException {
+        final Long previous = sizes().remove(name);
+        if (previous != null) {
+            this.total -= previous;
+        }
+    }
+
+    /**
+     * Drops the least recently read copies until the store fits its capacity.
+     */
+    private void evict() throws IOException {
+        final long capacity = this.httpConfig.validatedCopyCapacity();
+        final Iterator<Map.Entry<String, Long>> eldest = this.sizes.entrySet().iterator();
+        while ((this.total > capacity) && eldest.hasNext()) {
+            final Map.Entry<String, Long> entry = eldest.next();
+            // the sidecar is dropped first, so that a reader never finds a body without its validators
+            Files.deleteIfExists(directory().resolve(entry.getKey() + VALIDATORS));
+            Files.deleteIfExists(directory().resolve(entry.getKey() + BODY));
+            logger.debug("Evicted the validated copy {}", entry.getKey());
+            this.total -= entry.getValue();
+            eldest.remove();
+        }
+    }
+
+    private static long sizeOf(final Path body) {
+        try {
+            return Files.size(body);
+        } catch (final IOException e) {
+            return 0L;
+        }
+    }
+
+    private static FileTime lastAccessOf(final Path body) {
+        try {
+            return Files.getLastModifiedTime(body);
+        } catch (final IOException e) {
+            return FileTime.fromMillis(0L);
+        }
+    }
+
+    void invalidate(final String key) throws IOException {
+        Files.deleteIfExists(entry(key, VALIDATORS));
+        Files.deleteIfExists(entry(key, BODY));
+        removed(nameOf(key));
+    }
+
+    @Override
+    public String toString() {
+        return "ValidatedCopyStore{" +
+                "config=" + this.config +
+                ", httpConfig=" + this.httpConfig +
+                ", total=" + this.total +
+                "}";
+    }
+}
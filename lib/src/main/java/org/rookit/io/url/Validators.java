@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.url;
+
+import java.util.Optional;
+import java.util.Properties;
+import java.util.function.BiConsumer;
+
+final class Validators {
+
+    private static final String ETAG = "etag";
+    private static final String LAST_MODIFIED = "lastModified";
+
+    private final String etag;
+    private final String lastModified;
+
+    static Validators of(final String etag, final String lastModified) {
+        return new Validators(etag, lastModified);
+    }
+
+    static Validators fromProperties(final Properties properties) {
+        return new Validators(properties.getProperty(ETAG), properties.getProperty(LAST_MODIFIED));
+    }
+
+    private Validators(final String etag, final String lastModified) {
+        this.etag = etag;
+        this.lastModified = lastModified;
+    }
+
+    Optional<String> etag() {
+        return Optional.ofNullable(this.etag);
+    }
+
+    Optional<String> lastModified() {
+        return Optional.ofNullable(this.lastModified);
+    }
+
+    boolean isEmpty() {
+        return (this.etag == null) && (this.lastModified == null);
+    }
+
+    /**
+     * Sets the conditional request headers that revalidate content carrying these validators.
+     */
+    void applyTo(final BiConsumer<String, String> headers) {
+        etag().ifPresent(value -> headers.accept("If-None-Match", value));
+        lastModified().ifPresent(value -> headers.accept("If-Modified-Since", value));
+    }
+
+    Properties toProperties() {
+        final Properties properties = new Properties();
+        etag().ifPresent(value -> properties.setProperty(ETAG, value));
+        lastModified().ifPresent(value -> properties.setProperty(LAST_MODIFIED, value));
+        return properties;
+    }
+
+    @Override
+    public String toString() {
+        return "Validators{" +
+                "etag=" + this.etag +
+                ", lastModified=" + this.lastModified +
+                "}";
+    }
+}
@@ -24,10 +24,95 @@ package org.rookit.io.path;
 import org.immutables.value.Value;
 
 import java.nio.file.Path;
+import java.time.Duration;
 
 @Value.Immutable
 public interface PathConfig {
 
     Path temporaryDirectory();
 
+    /**
+     * How long file attributes may be served from memory. Zero (the default) disables the attribute cache.
+     */
+    @Value.Default
+    default Duration metadataCacheTtl() {
+        return Duration.ZERO;
+    }
+
+    /**
+     * How long an archive file system may stay open without being used. Zero keeps them open until closed.
+     */
+    @Value.Default
+    default Duration fileSystemIdleTimeout() {
+        return Duration.ofMinutes(5);
+    }
+
+    /**
+     * The combined size, in bytes of their files, of the parsed objects kept in memory by serialized directory
+     * registries. Zero disables the cache.
+     */
+    @Value.Default
+    default long parsedObjectCacheWeight() {
+        return 32L * 1024L * 1024L;
+    }
+
+    /**
+     * Whether cached parsed objects are invalidated by watching their directory, rather than by checking the size
+     * and modification time of their file on every lookup.
+     */
+    @Value.Default
+    default boolean parsedObjectCacheWatch() {
+        return false;
+    }
+
+    /**
+     * The size, in bytes, past which a packed registry starts appending to a new segment file.
+     */
+    @Value.Default
+    default long packedSegmentSize() {
+        return 64L * 1024L * 1024L;
+    }
+
+    /**
+     * How often packed registries check whether their older segments hold enough overwritten values to be
+     * compacted. Zero disables compaction.
+     */
+    @Value.Default
+    default Duration packedCompactionInterval() {
+        return Duration.ofMinutes(1);
+    }
+
+    /**
+     * How often write-behind registries flush their queued writes, unless each write is made durable as it comes.
+     */
+    @Value.Default
+    default Duration writeBehindFlushInterval() {
+        return Duration.ofMillis(100);
+    }
+
+    /**
+     * The combined size, in bytes, of the writes a write-behind registry queues before flushing early. Writers
+     * that go past it wait for their write to be flushed.
+     */
+    @Value.Default
+    default long writeBehindMaxPendingBytes() {
+        return 64L * 1024L * 1024L;
+    }
+
+    /**
+     * How many archive entries may be compressed at the same time by an archive writer.
+     */
+    @Value.Default
+    default int archiveParallelism() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * The deflate level (0-9) of archived entries, or -1 for the default level.
+     */
+    @Value.Default
+    default int archiveCompressionLevel() {
+        return -1;
+    }
+
 }
@@ -0,0 +1,55 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.path.archive;
+
+import org.rookit.io.data.DataSource;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Serves zip/jar entries from a persisted index of each archive's central directory, without opening a file
+ * system for it.
+ */
+public interface ArchiveIndexService {
+
+    /**
+     * The entry, or empty if the archive has no such entry or stores it in a way the index cannot serve.
+     */
+    Optional<DataSource> find(Path archive, String entry) throws IOException;
+
+    void invalidate(Path archive);
+
+    /**
+     * Stops serving the archive from its index, as it is being written through its file system, whose changes
+     * only reach the archive file once that file system is {@link #closed(Path) closed}.
+     */
+    void written(Path archive);
+
+    /**
+     * Tells that the file system of the archive was closed, so that an archive written through it is indexed
+     * again.
+     */
+    void closed(Path archive);
+
+}
@@ -21,20 +21,46 @@
  ******************************************************************************/
 package org.rookit.io.path.registry;
 
-import org.rookit.io.data.DataSource;
+import io.reactivex.Single;
 import org.rookit.utils.object.DynamicObject;
 import org.rookit.utils.registry.Registry;
 
+import java.io.IOException;
 import java.net.URI;
 import java.nio.file.FileSystem;
 import java.nio.file.Path;
 
 public interface PathRegistries {
 
-    Registry<String, DataSource> directoryRegistry(Path directory);
+    DirectoryRegistry directoryRegistry(Path directory);
+
+    /**
+     * A registry that spreads its files over the subdirectories of the given layout, for directories too large
+     * to be kept flat.
+     */
+    DirectoryRegistry shardedDirectoryRegistry(Path directory, ShardLayout layout);
+
+    /**
+     * Moves the files of a flat directory registry into the given layout, emitting how many were moved. Files
+     * already in place are left alone, so an interrupted migration can simply be run again. The directory must
+     * not be written to while migrating.
+     */
+    Single<Long> shardDirectory(Path directory, ShardLayout layout);
+
+    /**
+     * A registry that packs its values into a few append-only segment files under the directory, rather than
+     * one file per key, for large amounts of small values. Must be closed once no longer used.
+     */
+    DirectoryRegistry packedDirectoryRegistry(Path directory) throws IOException;
+
+    /**
+     * A directory registry whose writes are queued, coalesced per key and flushed in batches, with the given
+     * durability. Reads see queued writes. Must be closed to flush what is still queued.
+     */
+    DirectoryRegistry writeBehindDirectoryRegistry(Path directory, Durability durability);
 
     Registry<String, DynamicObject> serializedDirectoryRegistry(Path directory);
 
-    Registry<URI, FileSystem> uriFileSystemRegistry();
+    RefCountedRegistry<URI, FileSystem> uriFileSystemRegistry();
 
 }
@@ -0,0 +1,59 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.path.registry;
+
+import org.immutables.value.Value;
+
+/**
+ * How a sharded directory registry fans keys out into subdirectories named after a prefix of the key's hash, as
+ * in {@code directory/3f/a9/key} for a depth and width of two.
+ */
+@Value.Immutable
+public interface ShardLayout {
+
+    int MAX_HASH_CHARACTERS = 32;
+
+    /**
+     * How many levels of subdirectories sit between the directory and the files.
+     */
+    @Value.Default
+    default int depth() {
+        return 2;
+    }
+
+    /**
+     * How many hexadecimal characters name the subdirectories of each level, i.e. up to 16^width subdirectories
+     * per level.
+     */
+    @Value.Default
+    default int width() {
+        return 2;
+    }
+
+    @Value.Check
+    default void check() {
+        if ((depth() < 1) || (width() < 1) || ((depth() * width()) > MAX_HASH_CHARACTERS)) {
+            throw new IllegalStateException("Invalid shard layout: depth " + depth() + ", width " + width());
+        }
+    }
+
+}
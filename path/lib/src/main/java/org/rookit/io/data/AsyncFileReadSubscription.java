@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.data;
+
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+@SuppressWarnings("ClassExtendsConcreteCollection")
+final class AsyncFileReadSubscription extends AtomicLong
+        implements Subscription, CompletionHandler<Integer, ByteBuffer> {
+
+    private static final long serialVersionUID = -2137618468219434528L;
+
+    private final Subscriber<? super ByteBuffer> subscriber;
+    private final AsynchronousFileChannel channel;
+    private final int chunkSize;
+    private final AtomicBoolean reading;
+    private volatile boolean cancelled;
+    private long position;
+
+    AsyncFileReadSubscription(final Subscriber<? super ByteBuffer> subscriber,
+                              final AsynchronousFileChannel channel,
+                              final int chunkSize) {
+        this.subscriber = subscriber;
+        this.channel = channel;
+        this.chunkSize = chunkSize;
+        this.reading = new AtomicBoolean(false);
+    }
+
+    @Override
+    public void request(final long n) {
+        if (n <= 0L) {
+            cancel();
+            this.subscriber.onError(new IllegalArgumentException("Non-positive request: " + n));
+            return;
+        }
+        long current;
+        long next;
+        do {
+            current = get();
+            next = current + n;
+            if (next < 0L) {
+                // overflow, which means unbounded
+                next = Long.MAX_VALUE;
+            }
+        } while (!compareAndSet(current, next));
+        readNext();
+    }
+
+    private void readNext() {
+        // at most a single read in flight, and only while there is outstanding demand
+        if (!this.cancelled && (get() > 0L) && this.reading.compareAndSet(false, true)) {
+            final ByteBuffer chunk = ByteBuffer.allocate(this.chunkSize);
+            this.channel.read(chunk, this.position, chunk, this);
+        }
+    }
+
+    @Override
+    public void completed(final Integer result, final ByteBuffer chunk) {
+        if (this.cancelled) {
+            return;
+        }
+        if (result == -1) {
+            this.cancelled = true;
+            this.subscriber.onComplete();
+            return;
+        }
+        this.position += result;
+        chunk.flip();
+        if (get() != Long.MAX_VALUE) {
+            decrementAndGet();
+        }
+        this.subscriber.onNext(chunk);
+        this.reading.set(false);
+        readNext();
+    }
+
+    @Override
+    public void failed(final Throwable exc, final ByteBuffer chunk) {
+        if (!this.cancelled) {
+            this.cancelled = true;
+            this.subscriber.onError(exc);
+        }
+    }
+
+    @Override
+    public void cancel() {
+        this.cancelled = true;
+    }
+
+    @Override
+    public String toString() {
+        return "AsyncFileReadSubscription{" +
+                "subscriber=" + this.subscriber +
+                ", channel=" + this.channel +
+                ", chunkSize=" + this.chunkSize +
+                ", position=" + this.position +
+                ", cancelled=" + this.cancelled +
+                "}";
+    }
+}
@@ -0,0 +1,207 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.data;
+
+import com.google.inject.Inject;
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+final class BaseCopyEngine implements CopyEngine {
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(BaseCopyEngine.class);
+
+    private final CopyConfig config;
+    private final BufferPool bufferPool;
+    private final LongAdder copies;
+    private final LongAdder copiedBytes;
+    private final LongAdder elapsedNanos;
+
+    @Inject
+    private BaseCopyEngine(final CopyConfig config) {
+        this.config = config;
+        this.bufferPool = new BufferPool(config.bufferSize(), config.maxPooledBuffers(), config.directBuffers());
+        this.copies = new LongAdder();
+        this.copiedBytes = new LongAdder();
+        this.elapsedNanos = new LongAdder();
+    }
+
+    @Override
+    public Completable copy(final DataSource source, final DataSink sink) {
+        return Completable.fromAction(() -> {
+            final long start = System.nanoTime();
+            try (final ReadableByteChannel input = source.readChannel()) {
+                final WritableByteChannel output = sink.writeChannel();
+                final long copied;
+                try {
+                    copied = transfer(input, output);
+                } catch (final IOException | RuntimeException e) {
+                    abort(output, e);
+                    throw e;
+                }
+                output.close();
+                final long elapsed = System.nanoTime() - start;
+                this.copies.increment();
+                this.copiedBytes.add(copied);
+                this.elapsedNanos.add(elapsed);
+                logger.trace("Copied {} bytes from {} to {} in {}ns", copied, source, sink, elapsed);
+            }
+        }).subscribeOn(sink.scheduler());
+    }
+
+    /**
+     * Abandons the sink of a failed copy, so that sinks publishing on close keep their previous content.
+     */
+    private static void abort(final WritableByteChannel output, final Exception failure) {
+        try {
+            if (output instanceof AbortableChannel) {
+                ((AbortableChannel) output).abort();
+            } else {
+                output.close();
+            }
+        } catch (final IOException | RuntimeException e) {
+            failure.addSuppressed(e);
+        }
+    }
+
+    @Override
+    public Completable copyAll(final Flowable<CopyTask> tasks) {
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(this.config.parallelism());
+        // every device gets its own lane, so a slow device does not hold back copies to the others
+        return tasks.groupBy(CopyTask::device)
+                .flatMapCompletable(device -> device.flatMapCompletable(task -> limiter.limit(copy(task)),
+                        true, this.config.perDeviceParallelism()), true, Integer.MAX_VALUE);
+    }
+
+    private Completable copy(final CopyTask task) {
+        return copy(task.source(), task.sink())
+                .onErrorResumeNext(error -> Completable.error(new IOException(
+                        String.format("Cannot copy %s to %s.", task.source(), task.sink()), error)));
+    }
+
+    private long transfer(final ReadableByteChannel input, final WritableByteChannel output) throws IOException {
+        if (input instanceof FileChannel) {
+            final FileChannel fileInput = (FileChannel) input;
+            try {
+                if (output instanceof FileChannel) {
+                    // file to file, so the kernel does the copy (sendfile/copy_file_range)
+                    return channelTransfer(fileInput, output);
+                }
+                if (fileInput.size() >= this.config.mappedThreshold()) {
+                    return mappedCopy(fileInput, output);
+                }
+            } catch (final UnsupportedOperationException e) {
+                // channels of other providers, such as zip file systems, may neither transfer nor map, and fail
+                // before moving any data
+                logger.trace("{} cannot transfer or map, copying through a buffer", input);
+            }
+        }
+        return bufferedCopy(input, output);
+    }
+
+    private static long channelTransfer(final FileChannel input, final WritableByteChannel output)
+            throws IOException {
+        final long size = input.size();
+        long position = 0L;
+        while (position < size) {
+            final long transferred = input.transferTo(position, size - position, output);
+            if (transferred <= 0L) {
+                // the source shrunk while being copied
+                break;
+            }
+            position += transferred;
+        }
+        return position;
+    }
+
+    private long mappedCopy(final FileChannel input, final WritableByteChannel output) throws IOException {
+        final long size = input.size();
+        long position = 0L;
+        while (position < size) {
+            final long chunkSize = Math.min(this.config.mappedChunkSize(), size - position);
+            final MappedByteBuffer chunk = input.map(FileChannel.MapMode.READ_ONLY, position, chunkSize);
+            try {
+                writeFully(output, chunk);
+            } finally {
+                MappedBuffers.unmap(chunk);
+            }
+            position += chunkSize;
+        }
+        return position;
+    }
+
+    private long bufferedCopy(final ReadableByteChannel input, final WritableByteChannel output)
+            throws IOException {
+        final ByteBuffer buffer = this.bufferPool.acquire();
+        try {
+            long copied = 0L;
+            while (input.read(buffer) != -1) {
+                buffer.flip();
+                copied += writeFully(output, buffer);
+                buffer.clear();
+            }
+            return copied;
+        } finally {
+            this.bufferPool.release(buffer);
+        }
+    }
+
+    private static int writeFully(final WritableByteChannel output, final ByteBuffer buffer) throws IOException {
+        final int remaining = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            output.write(buffer);
+        }
+        return remaining;
+    }
+
+    @Override
+    public CopyStatistics statistics() {
+        final long allocatedBuffers = this.bufferPool.allocations();
+        return new BaseCopyStatistics(this.copies.sum(),
+                this.copiedBytes.sum(),
+                Duration.ofNanos(this.elapsedNanos.sum()),
+                allocatedBuffers,
+                allocatedBuffers * this.bufferPool.bufferSize());
+    }
+
+    @Override
+    public String toString() {
+        return "BaseCopyEngine{" +
+                "config=" + this.config +
+                ", bufferPool=" + this.bufferPool +
+                ", statistics=" + statistics() +
+                "}";
+    }
+}
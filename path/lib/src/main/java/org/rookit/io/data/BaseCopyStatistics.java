@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.data;
+
+import java.time.Duration;
+
+final class BaseCopyStatistics implements CopyStatistics {
+
+    private final long copies;
+    private final long copiedBytes;
+    private final Duration elapsed;
+    private final long allocatedBuffers;
+    private final long allocatedBytes;
+
+    BaseCopyStatistics(final long copies,
+                       final long copiedBytes,
+                       final Duration elapsed,
+                       final long allocatedBuffers,
+                       final long allocatedBytes) {
+        this.copies = copies;
+        this.copiedBytes = copiedBytes;
+        this.elapsed = elapsed;
+        this.allocatedBuffers = allocatedBuffers;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    @Override
+    public long copies() {
+        return this.copies;
+    }
+
+    @Override
+    public long copiedBytes() {
+        return this.copiedBytes;
+    }
+
+    @Override
+    public Duration elapsed() {
+        return this.elapsed;
+    }
+
+    @Override
+    public long allocatedBuffers() {
+        return this.allocatedBuffers;
+    }
+
+    @Override
+    public long allocatedBytes() {
+        return this.allocatedBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "BaseCopyStatistics{" +
+                "copies=" + this.copies +
+                ", copiedBytes=" + this.copiedBytes +
+                ", elapsed=" + this.elapsed +
+                ", allocatedBuffers=" + this.allocatedBuffers +
+                ", allocatedBytes=" + this.allocatedBytes +
+                ", throughput=" + throughput() +
+                "}";
+    }
+}
@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.data;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+final class BufferPool {
+
+    private final int bufferSize;
+    private final boolean direct;
+    private final Queue<ByteBuffer> buffers;
+    private final LongAdder allocations;
+
+    BufferPool(final int bufferSize, final int capacity, final boolean direct) {
+        this.bufferSize = bufferSize;
+        this.direct = direct;
+        this.buffers = new ArrayBlockingQueue<>(capacity);
+        this.allocations = new LongAdder();
+    }
+
+    ByteBuffer acquire() {
+        final ByteBuffer buffer = this.buffers.poll();
+        if (buffer != null) {
+            return buffer;
+        }
+        this.allocations.increment();
+        return this.direct ? ByteBuffer.allocateDirect(this.bufferSize) : ByteBuffer.allocate(this.bufferSize);
+    }
+
+    void release(final ByteBuffer buffer) {
+        buffer.clear();
+        // a full pool simply drops the buffer
+        this.buffers.offer(buffer);
+    }
+
+    long allocations() {
+        return this.allocations.sum();
+    }
+
+    int bufferSize() {
+        return this.bufferSize;
+    }
+
+    @Override
+    public String toString() {
+        return "BufferPool{" +
+                "bufferSize=" + this.bufferSize +
+                ", direct=" + this.direct +
+                ", pooled=" + this.buffers.size() +
+                ", allocations=" + this.allocations +
+                "}";
+    }
+}
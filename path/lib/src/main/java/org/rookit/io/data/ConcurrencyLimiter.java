@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.data;
+
+import com.google.common.collect.Queues;
+import io.reactivex.Completable;
+import io.reactivex.CompletableEmitter;
+
+import java.util.Queue;
+
+final class ConcurrencyLimiter {
+
+    private final int permits;
+    private final Queue<Runnable> pending;
+    private int available;
+
+    ConcurrencyLimiter(final int permits) {
+        this.permits = permits;
+        this.available = permits;
+        this.pending = Queues.newArrayDeque();
+    }
+
+    /**
+     * Defers the subscription to {@code work} until a permit is available, without blocking the subscribing thread.
+     */
+    Completable limit(final Completable work) {
+        return Completable.create(emitter -> acquire(() -> start(work, emitter)));
+    }
+
+    private void start(final Completable work, final CompletableEmitter emitter) {
+        if (emitter.isDisposed()) {
+            release();
+            return;
+        }
+        emitter.setDisposable(work
+                .doFinally(this::release)
+                .subscribe(emitter::onComplete, emitter::tryOnError));
+    }
+
+    private void acquire(final Runnable task) {
+        synchronized (this) {
+            if (this.available == 0) {
+                this.pending.add(task);
+                return;
+            }
+            this.available--;
+        }
+        task.run();
+    }
+
+    private void release() {
+        final Runnable next;
+        synchronized (this) {
+            next = this.pending.poll();
+            if (next == null) {
+                this.available++;
+                return;
+            }
+        }
+        // the permit is handed over to the next pending task
+        next.run();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ConcurrencyLimiter{" +
+                "permits=" + this.permits +
+                ", available=" + this.available +
+                ", pending=" + this.pending.size() +
+                "}";
+    }
+}
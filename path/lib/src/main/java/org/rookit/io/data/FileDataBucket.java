@@ -2,6 +2,9 @@
 package org.rookit.io.data;
 
 import io.reactivex.Completable;
+import io.reactivex.CompletableEmitter;
+import io.reactivex.Flowable;
+import io.reactivex.Scheduler;
 import io.reactivex.Single;
 import io.reactivex.functions.Consumer;
 import io.reactivex.functions.Function;
@@ -17,10 +20,19 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 final class FileDataBucket implements DataBucket {
 
@@ -32,32 +44,60 @@ final class FileDataBucket implements DataBucket {
     private final Failsafe failsafe;
     private final Path path;
     private final Charset charset;
+    private final MappedFileCache mappings;
+    private final FileMetadataCache metadata;
+    private final Scheduler scheduler;
+    private final CopyEngine copyEngine;
 
-    FileDataBucket(final Failsafe failsafe, final Path path, final Charset charset) {
+    FileDataBucket(final Failsafe failsafe,
+                   final Path path,
+                   final Charset charset,
+                   final MappedFileCache mappings,
+                   final FileMetadataCache metadata,
+                   final Scheduler scheduler,
+                   final CopyEngine copyEngine) {
         this.failsafe = failsafe;
         this.charset = charset;
+        this.mappings = mappings;
+        this.metadata = metadata;
+        this.scheduler = scheduler;
+        this.copyEngine = copyEngine;
         logger.trace("New {} in path {}", FileDataBucket.class.getName(), path);
         this.path = path;
     }
 
+    /**
+     * Asynchronous channels and mappings are only available for paths of the default file system, paths of any
+     * other (such as zip file systems) go through the channel based defaults instead.
+     */
+    private boolean isDefaultFileSystem() {
+        return this.path.getFileSystem() == FileSystems.getDefault();
+    }
+
+    @Override
+    public Scheduler scheduler() {
+        return this.scheduler;
+    }
+
     @Override
     public void clear() throws IOException {
+        this.metadata.invalidate(this.path);
         Files.deleteIfExists(this.path);
     }
 
     @Override
-    public boolean isEmpty() {
-        return Files.notExists(this.path)
-                || !canRead();
+    public DataMetadata metadata() throws IOException {
+        return this.metadata.get(this.path);
     }
-    
-    @SuppressWarnings("boxing")
-    private boolean canRead() {
-        try (final InputStream input = Files.newInputStream(this.path, StandardOpenOption.CREATE,
-                StandardOpenOption.READ)) {
-            return input.read() != -1;
+
+    @Override
+    public boolean isEmpty() {
+        try {
+            final DataMetadata metadata = metadata();
+            return !metadata.exists() || (metadata.size().orElse(0L) == 0L);
         } catch (final IOException e) {
-            final String errMsg = String.format("Attempting to read path '%s' resulted in an exception.", this.path);
+            final String errMsg = String.format("Attempting to read the attributes of path '%s' resulted in an " +
+                    "exception.", this.path);
             logger.warn(errMsg, e);
             return false;
         }
@@ -71,6 +111,84 @@ final class FileDataBucket implements DataBucket {
         return Files.newInputStream(this.path, StandardOpenOption.READ);
     }
 
+    @Override
+    public ReadableByteChannel readChannel() throws IOException {
+        if (Files.notExists(this.path)) {
+            throw new FileNotFoundException(this.path.toString());
+        }
+        return FileChannel.open(this.path, StandardOpenOption.READ);
+    }
+
+    @Override
+    public <T> Single<T> readFromWithBuffer(final Function<ByteBuffer, T> function) {
+        return Single.fromCallable(() -> {
+            try (final FileChannel channel = (FileChannel) readChannel()) {
+                return function.apply(readFully(channel));
+            }
+        }).subscribeOn(this.scheduler);
+    }
+
+    @Override
+    public <T> Single<T> readRange(final long offset, final int length, final Function<ByteBuffer, T> function) {
+        this.failsafe.checkArgument().isNotNegative(logger, offset, "offset");
+        this.failsafe.checkArgument().isNotNegative(logger, length, "length");
+        return Single.fromCallable(() -> {
+            try (final FileChannel channel = (FileChannel) readChannel()) {
+                final long available = Math.max(0L, channel.size() - offset);
+                final ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(length, available));
+                while (buffer.hasRemaining()
+                        && (channel.read(buffer, offset + buffer.position()) != -1)) {
+                    // positional reads leave the channel position untouched
+                }
+                buffer.flip();
+                return function.apply(buffer);
+            }
+        }).subscribeOn(this.scheduler);
+    }
+
+    @Override
+    public Flowable<ByteBuffer> stream(final int chunkSize) {
+        if (!isDefaultFileSystem()) {
+            return DataBucket.super.stream(chunkSize);
+        }
+        return Flowable.<ByteBuffer, AsynchronousFileChannel>using(
+                () -> AsynchronousFileChannel.open(this.path, StandardOpenOption.READ),
+                channel -> Flowable.fromPublisher(subscriber -> subscriber.onSubscribe(
+                        new AsyncFileReadSubscription(subscriber, channel, chunkSize))),
+                AsynchronousFileChannel::close)
+                .subscribeOn(this.scheduler);
+    }
+
+    @Override
+    public <T> Single<T> readMapped(final Function<List<ByteBuffer>, T> function) {
+        if (!isDefaultFileSystem()) {
+            return DataBucket.super.readMapped(function);
+        }
+        return Single.fromCallable(() -> {
+            final MappedFile mappedFile = this.mappings.acquire(this.path);
+            try {
+                return function.apply(mappedFile.buffers());
+            } finally {
+                mappedFile.release();
+            }
+        }).subscribeOn(this.scheduler);
+    }
+
+    @SuppressWarnings("boxing")
+    private ByteBuffer readFully(final FileChannel channel) throws IOException {
+        final long size = channel.size();
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException(String.format("Path '%s' is too large (%d bytes) to fit in a single buffer.",
+                    this.path, size));
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        while (buffer.hasRemaining() && (channel.read(buffer) != -1)) {
+            // keep reading until the buffer is full or the file ends
+        }
+        buffer.flip();
+        return buffer;
+    }
+
     private Reader toReader(final InputStream stream) {
         return new InputStreamReader(stream, this.charset);
     }
@@ -95,6 +213,7 @@ final class FileDataBucket implements DataBucket {
 
     @Override
     public OutputStream writeTo() {
+        this.metadata.invalidate(this.path);
         try {
             return Files.newOutputStream(this.path);
         } catch (final IOException e) {
@@ -102,6 +221,56 @@ final class FileDataBucket implements DataBucket {
         }
     }
 
+    @Override
+    public WritableByteChannel writeChannel() throws IOException {
+        this.metadata.invalidate(this.path);
+        return FileChannel.open(this.path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    @Override
+    public Completable write(final Flowable<ByteBuffer> buffers) {
+        if (!isDefaultFileSystem()) {
+            return DataBucket.super.write(buffers)
+                    .doFinally(() -> this.metadata.invalidate(this.path));
+        }
+        return Completable.using(() -> AsynchronousFileChannel.open(this.path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING),
+                channel -> {
+                    final AtomicLong position = new AtomicLong();
+                    // one buffer at a time, so upstream is only asked for more once the previous one is written
+                    return buffers.concatMapCompletable(buffer -> Completable.create(emitter -> {
+                        writeAt(channel, buffer, position, emitter);
+                    }));
+                },
+                AsynchronousFileChannel::close)
+                .doOnSubscribe(disposable -> this.metadata.invalidate(this.path))
+                .doFinally(() -> this.metadata.invalidate(this.path))
+                .subscribeOn(this.scheduler);
+    }
+
+    private static void writeAt(final AsynchronousFileChannel channel,
+                                final ByteBuffer buffer,
+                                final AtomicLong position,
+                                final CompletableEmitter emitter) {
+        channel.write(buffer, position.get(), buffer, new CompletionHandler<Integer, ByteBuffer>() {
+            @Override
+            public void completed(final Integer result, final ByteBuffer attachment) {
+                final long next = position.addAndGet(result);
+                if (attachment.hasRemaining()) {
+                    channel.write(attachment, next, attachment, this);
+                } else {
+                    emitter.onComplete();
+                }
+            }
+
+            @Override
+            public void failed(final Throwable exc, final ByteBuffer attachment) {
+                emitter.tryOnError(exc);
+            }
+        });
+    }
+
     @Override
     public Completable writeToWithWriter(final Consumer<Writer> consumer) {
         return writeTo(stream -> {
@@ -118,22 +287,26 @@ final class FileDataBucket implements DataBucket {
 
     @Override
     public Completable copyFrom(final DataSource dataBucket) {
-        if (equals(dataBucket)) {
+        if (equals(dataBucket) || isSamePath(dataBucket)) {
             logger.trace("Attempting to copy path {} to itself. Skipping.", this.path);
             return Completable.complete();
         } else {
-            return dataBucket.readFrom(reader -> {
-                Files.copy(reader, this.path);
-            });
+            return this.copyEngine.copy(dataBucket, this)
+                    .doFinally(() -> this.metadata.invalidate(this.path));
         }
     }
 
+    private boolean isSamePath(final DataSource dataBucket) {
+        return (dataBucket instanceof FileDataBucket) && this.path.equals(((FileDataBucket) dataBucket).path);
+    }
+
     @Override
     public String toString() {
         return "FileDataBucket{" +
                 "failsafe=" + this.failsafe +
                 ", path=" + this.path +
                 ", charset=" + this.charset +
+                ", scheduler=" + this.scheduler +
                 "}";
     }
 }
@@ -1,15 +1,25 @@
 
 package org.rookit.io.data;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Queues;
 import com.google.inject.Inject;
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Scheduler;
 import org.rookit.failsafe.Failsafe;
+import org.rookit.io.path.PathConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.ExecutionException;
 
 @SuppressWarnings("javadoc")
 final class FileDataBucketFactoryImpl implements DataBucketFactory<Path> {
@@ -19,16 +29,34 @@ final class FileDataBucketFactoryImpl implements DataBucketFactory<Path> {
      */
     private static final Logger logger = LoggerFactory.getLogger(FileDataBucketFactoryImpl.class);
 
+    private static final int MAX_MAPPED_FILES = 256;
+    private static final long MAX_CACHED_DEVICES = 10_000L;
+
     private final Failsafe failsafe;
     private final Queue<Path> tempFiles;
     private final Charset charset;
+    private final MappedFileCache mappings;
+    private final FileMetadataCache metadata;
+    private final Scheduler scheduler;
+    private final CopyEngine copyEngine;
+    private final Cache<Path, Object> devices;
 
     @Inject
     private FileDataBucketFactoryImpl(final Failsafe failsafe,
-                                      final Charset charset) {
+                                      final Charset charset,
+                                      final PathConfig config,
+                                      @IOScheduler final Scheduler scheduler,
+                                      final CopyEngine copyEngine) {
         this.failsafe = failsafe;
         this.charset = charset;
         this.tempFiles = Queues.newArrayDeque();
+        this.mappings = new MappedFileCache(MAX_MAPPED_FILES);
+        this.metadata = new FileMetadataCache(config.metadataCacheTtl());
+        this.scheduler = scheduler;
+        this.copyEngine = copyEngine;
+        this.devices = CacheBuilder.newBuilder()
+                .maximumSize(MAX_CACHED_DEVICES)
+                .build();
     }
 
     @Override
@@ -38,12 +66,41 @@ final class FileDataBucketFactoryImpl implements DataBucketFactory<Path> {
     }
 
     private DataBucket createWithAbsolutePath(final Path absolutePath) {
-        return new FileDataBucket(this.failsafe, absolutePath, this.charset);
+        return new FileDataBucket(this.failsafe, absolutePath, this.charset, this.mappings,
+                this.metadata, this.scheduler, this.copyEngine);
+    }
+
+    @Override
+    public Completable copyAll(final Map<Path, ? extends DataSource> sources) {
+        return this.copyEngine.copyAll(Flowable.fromIterable(sources.entrySet())
+                .map(entry -> CopyTask.of(entry.getValue(), create(entry.getKey()), deviceOf(entry.getKey()))));
+    }
+
+    private Object deviceOf(final Path path) {
+        final Path parent = path.toAbsolutePath().getParent();
+        if (parent == null) {
+            return path.getFileSystem();
+        }
+        try {
+            return this.devices.get(parent, () -> fileStoreOf(parent));
+        } catch (final ExecutionException e) {
+            logger.debug("Cannot resolve the file store of {}. Using its root instead.", parent, e);
+            return parent.getRoot();
+        }
+    }
+
+    private static Object fileStoreOf(final Path directory) throws IOException {
+        // the target directory might not exist yet, so the closest existing ancestor is used instead
+        Path existing = directory;
+        while ((existing != null) && Files.notExists(existing)) {
+            existing = existing.getParent();
+        }
+        return Files.getFileStore(existing == null ? directory : existing);
     }
 
     @Override
     public void close() {
-        // nothing to close
+        this.mappings.close();
     }
 
     @Override
@@ -52,6 +109,10 @@ final class FileDataBucketFactoryImpl implements DataBucketFactory<Path> {
                 "failsafe=" + this.failsafe +
                 ", tempFiles=" + this.tempFiles +
                 ", charset=" + this.charset +
+                ", mappings=" + this.mappings +
+                ", metadata=" + this.metadata +
+                ", scheduler=" + this.scheduler +
+                ", copyEngine=" + this.copyEngine +
                 "}";
     }
 }
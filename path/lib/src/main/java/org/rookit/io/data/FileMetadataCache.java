@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.data;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+final class FileMetadataCache {
+
+    private static final long MAX_ENTRIES = 100_000L;
+
+    private final Duration ttl;
+    private final Cache<Path, DataMetadata> cache;
+
+    FileMetadataCache(final Duration ttl) {
+        this.ttl = ttl;
+        this.cache = CacheBuilder.newBuilder()
+                .expireAfterWrite(ttl.toNanos(), TimeUnit.NANOSECONDS)
+                .maximumSize(MAX_ENTRIES)
+                .build();
+    }
+
+    DataMetadata get(final Path path) throws IOException {
+        if (this.ttl.isZero()) {
+            return read(path);
+        }
+        try {
+            return this.cache.get(path, () -> read(path));
+        } catch (final ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+    }
+
+    void invalidate(final Path path) {
+        this.cache.invalidate(path);
+    }
+
+    private static DataMetadata read(final Path path) throws IOException {
+        try {
+            final BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            return DataMetadata.of(OptionalLong.of(attributes.size()),
+                    Optional.of(attributes.lastModifiedTime().toInstant()));
+        } catch (final NoSuchFileException e) {
+            return DataMetadata.absent();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "FileMetadataCache{" +
+                "ttl=" + this.ttl +
+                ", cache=" + this.cache +
+                "}";
+    }
+}
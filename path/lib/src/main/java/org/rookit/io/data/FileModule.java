@@ -42,5 +42,7 @@ public final class FileModule extends AbstractModule {
     @Override
     protected void configure() {
         bind(new TypeLiteral<DataBucketFactory<Path>>() {}).to(FileDataBucketFactoryImpl.class).in(Singleton.class);
+        bind(CopyEngine.class).to(BaseCopyEngine.class).in(Singleton.class);
+        bind(CopyConfig.class).toInstance(ImmutableCopyConfig.builder().build());
     }
 }
@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.data;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.AbstractModule;
+import com.google.inject.Module;
+import com.google.inject.Provides;
+import com.google.inject.Singleton;
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Supplier;
+
+public final class IOSchedulerModule extends AbstractModule {
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(IOSchedulerModule.class);
+
+    private static final Module MODULE = new IOSchedulerModule(IOSchedulerModule::threadPerTaskScheduler);
+
+    public static Module getModule() {
+        return MODULE;
+    }
+
+    public static Module boundedModule(final int threads) {
+        return new IOSchedulerModule(() -> boundedScheduler(threads));
+    }
+
+    private static Scheduler threadPerTaskScheduler() {
+        try {
+            // java 21+
+            final ExecutorService executor = (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor")
+                    .invoke(null);
+            return Schedulers.from(executor);
+        } catch (final ReflectiveOperationException e) {
+            logger.debug("Virtual threads are not available. Falling back to an unbounded platform thread pool.");
+            return Schedulers.io();
+        }
+    }
+
+    private static Scheduler boundedScheduler(final int threads) {
+        final ThreadFactory threadFactory = new ThreadFactoryBuilder()
+                .setNameFormat("rookit-io-%d")
+                .setDaemon(true)
+                .build();
+        return Schedulers.from(Executors.newFixedThreadPool(threads, threadFactory));
+    }
+
+    private final Supplier<Scheduler> schedulerFactory;
+
+    private IOSchedulerModule(final Supplier<Scheduler> schedulerFactory) {
+        this.schedulerFactory = schedulerFactory;
+    }
+
+    @Override
+    protected void configure() {
+        // nothing to configure
+    }
+
+    @Provides
+    @Singleton
+    @IOScheduler
+    Scheduler ioScheduler() {
+        return this.schedulerFactory.get();
+    }
+}
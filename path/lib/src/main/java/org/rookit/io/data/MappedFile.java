@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.data;
+
+import com.google.common.collect.ImmutableList;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+final class MappedFile {
+
+    private static final long CHUNK_SIZE = 1L << 30;
+
+    static MappedFile map(final Path path, final BasicFileAttributes attributes) throws IOException {
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            final ImmutableList.Builder<MappedByteBuffer> chunks = ImmutableList.builder();
+            long position = 0L;
+            do {
+                final long chunkSize = Math.min(CHUNK_SIZE, size - position);
+                chunks.add(channel.map(FileChannel.MapMode.READ_ONLY, position, chunkSize));
+                position += chunkSize;
+            } while (position < size);
+
+            return new MappedFile(path, attributes.size(), attributes.lastModifiedTime(), chunks.build());
+        }
+    }
+
+    private final Path path;
+    private final long size;
+    private final FileTime lastModified;
+    private final List<MappedByteBuffer> chunks;
+    private final AtomicInteger references;
+
+    private MappedFile(final Path path,
+                       final long size,
+                       final FileTime lastModified,
+                       final List<MappedByteBuffer> chunks) {
+        this.path = path;
+        this.size = size;
+        this.lastModified = lastModified;
+        this.chunks = chunks;
+        // the reference held by whoever mapped the file
+        this.references = new AtomicInteger(1);
+    }
+
+    boolean isCurrent(final BasicFileAttributes attributes) {
+        return (this.size == attributes.size()) && this.lastModified.equals(attributes.lastModifiedTime());
+    }
+
+    List<ByteBuffer> buffers() {
+        final ImmutableList.Builder<ByteBuffer> buffers = ImmutableList.builder();
+        for (final MappedByteBuffer chunk : this.chunks) {
+            // independent position and limit for every reader
+            buffers.add(chunk.duplicate());
+        }
+        return buffers.build();
+    }
+
+    void retain() {
+        this.references.incrementAndGet();
+    }
+
+    void release() {
+        if (this.references.decrementAndGet() == 0) {
+            for (final MappedByteBuffer chunk : this.chunks) {
+                MappedBuffers.unmap(chunk);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "MappedFile{" +
+                "path=" + this.path +
+                ", size=" + this.size +
+                ", lastModified=" + this.lastModified +
+                ", references=" + this.references +
+                "}";
+    }
+}
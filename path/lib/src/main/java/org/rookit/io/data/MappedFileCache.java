@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.data;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+final class MappedFileCache implements Closeable {
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(MappedFileCache.class);
+
+    private final int maxMappings;
+    private final Map<Path, MappedFile> mappings;
+
+    MappedFileCache(final int maxMappings) {
+        this.maxMappings = maxMappings;
+        // access order, so that the least recently read mapping is the first to go
+        this.mappings = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    MappedFile acquire(final Path path) throws IOException {
+        final BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        synchronized (this) {
+            final MappedFile current = this.mappings.get(path);
+            if ((current != null) && current.isCurrent(attributes)) {
+                current.retain();
+                return current;
+            }
+
+            final MappedFile mappedFile = MappedFile.map(path, attributes);
+            logger.trace("Mapped {}", mappedFile);
+            mappedFile.retain();
+            final MappedFile stale = this.mappings.put(path, mappedFile);
+            if (stale != null) {
+                stale.release();
+            }
+            evictExcess();
+            return mappedFile;
+        }
+    }
+
+    private void evictExcess() {
+        final Iterator<MappedFile> iterator = this.mappings.values().iterator();
+        while ((this.mappings.size() > this.maxMappings) && iterator.hasNext()) {
+            final MappedFile eldest = iterator.next();
+            iterator.remove();
+            // only unmapped once the readers currently using it are done
+            eldest.release();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        for (final MappedFile mappedFile : this.mappings.values()) {
+            mappedFile.release();
+        }
+        this.mappings.clear();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "MappedFileCache{" +
+                "maxMappings=" + this.maxMappings +
+                ", mappings=" + this.mappings +
+                "}";
+    }
+}
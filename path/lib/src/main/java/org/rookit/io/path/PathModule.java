@@ -26,6 +26,8 @@ import com.google.inject.Module;
 import com.google.inject.Singleton;
 import com.google.inject.util.Modules;
 import org.rookit.io.data.FileModule;
+import org.rookit.io.data.IOSchedulerModule;
+import org.rookit.io.path.archive.ArchiveModule;
 import org.rookit.io.path.pool.PathPoolModule;
 import org.rookit.io.path.registry.RegistryModule;
 
@@ -33,7 +35,9 @@ public final class PathModule extends AbstractModule {
 
     private static final Module MODULE = Modules.combine(
             new PathModule(),
+            ArchiveModule.getModule(),
             FileModule.getModule(),
+            IOSchedulerModule.getModule(),
             PathPoolModule.getModule(),
             RegistryModule.getModule()
     );
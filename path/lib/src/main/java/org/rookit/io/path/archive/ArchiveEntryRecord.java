@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.path.archive;
+
+final class ArchiveEntryRecord {
+
+    static final int STORED = 0;
+    static final int DEFLATED = 8;
+
+    private final String name;
+    private final int method;
+    private final long compressedSize;
+    private final long size;
+    private final long localHeaderOffset;
+
+    ArchiveEntryRecord(final String name,
+                       final int method,
+                       final long compressedSize,
+                       final long size,
+                       final long localHeaderOffset) {
+        this.name = name;
+        this.method = method;
+        this.compressedSize = compressedSize;
+        this.size = size;
+        this.localHeaderOffset = localHeaderOffset;
+    }
+
+    String name() {
+        return this.name;
+    }
+
+    int method() {
+        return this.method;
+    }
+
+    long compressedSize() {
+        return this.compressedSize;
+    }
+
+    long size() {
+        return this.size;
+    }
+
+    long localHeaderOffset() {
+        return this.localHeaderOffset;
+    }
+
+    @Override
+    public String toString() {
+        return "ArchiveEntryRecord{" +
+                "name=" + this.name +
+                ", method=" + this.method +
+                ", compressedSize=" + this.compressedSize +
+                ", size=" + this.size +
+                ", localHeaderOffset=" + this.localHeaderOffset +
+                "}";
+    }
+}
@@ -0,0 +1,209 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.path.archive;
+
+import io.reactivex.Completable;
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
+import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Function;
+import org.rookit.failsafe.Failsafe;
+import org.rookit.io.data.DataMetadata;
+import org.rookit.io.data.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.zip.ZipException;
+
+/**
+ * An archive entry read straight from the archive file, using the offsets of its index.
+ */
+final class ArchiveEntrySource implements DataSource {
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(ArchiveEntrySource.class);
+
+    private static final int LOCAL_SIGNATURE = 0x04034b50;
+    private static final int LOCAL_HEADER_SIZE = 30;
+
+    private final Failsafe failsafe;
+    private final Path archive;
+    private final ArchiveEntryRecord entry;
+    private final long lastModified;
+    private final Charset charset;
+    private final Scheduler scheduler;
+
+    ArchiveEntrySource(final Failsafe failsafe,
+                       final Path archive,
+                       final ArchiveEntryRecord entry,
+                       final long lastModified,
+                       final Charset charset,
+                       final Scheduler scheduler) {
+        this.failsafe = failsafe;
+        this.archive = archive;
+        this.entry = entry;
+        this.lastModified = lastModified;
+        this.charset = charset;
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public Scheduler scheduler() {
+        return this.scheduler;
+    }
+
+    private boolean isStored() {
+        return this.entry.method() == ArchiveEntryRecord.STORED;
+    }
+
+    private FileChannel open() throws IOException {
+        return FileChannel.open(this.archive, StandardOpenOption.READ);
+    }
+
+    private long dataOffset(final FileChannel channel) throws IOException {
+        final ByteBuffer header = ByteBuffer.allocate(LOCAL_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(channel, header, this.entry.localHeaderOffset());
+        if (header.getInt(0) != LOCAL_SIGNATURE) {
+            throw new ZipException("Invalid local header for " + this.entry.name() + " in " + this.archive);
+        }
+        return this.entry.localHeaderOffset() + LOCAL_HEADER_SIZE
+                + Short.toUnsignedInt(header.getShort(26)) + Short.toUnsignedInt(header.getShort(28));
+    }
+
+    private static void readFully(final FileChannel channel,
+                                  final ByteBuffer buffer,
+                                  final long position) throws IOException {
+        final int start = buffer.position();
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position() - start) < 0) {
+                throw new ZipException("Unexpected end of archive");
+            }
+        }
+        buffer.flip();
+    }
+
+    @Override
+    public DataMetadata metadata() {
+        return DataMetadata.of(OptionalLong.of(this.entry.size()),
+                Optional.of(Instant.ofEpochMilli(this.lastModified)));
+    }
+
+    @Override
+    public InputStream readFrom() throws IOException {
+        final FileChannel channel = open();
+        try {
+            final InputStream data = new BoundedChannelInputStream(channel, dataOffset(channel),
+                    this.entry.compressedSize());
+            return isStored() ? data : new EntryInflaterInputStream(data);
+        } catch (final IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public <T> Single<T> readFromWithBuffer(final Function<ByteBuffer, T> function) {
+        if (this.entry.size() > Integer.MAX_VALUE) {
+            return DataSource.super.readFromWithBuffer(function);
+        }
+        return Single.fromCallable(() -> {
+            final ByteBuffer content = ByteBuffer.allocate((int) this.entry.size());
+            if (isStored()) {
+                try (final FileChannel channel = open()) {
+                    readFully(channel, content, dataOffset(channel));
+                }
+            } else {
+                try (final InputStream input = readFrom()) {
+                    final byte[] array = content.array();
+                    int read = 0;
+                    while (read < array.length) {
+                        final int step = input.read(array, read, array.length - read);
+                        if (step == -1) {
+                            break;
+                        }
+                        read += step;
+                    }
+                    content.limit(read);
+                }
+            }
+            return function.apply(content);
+        }).subscribeOn(scheduler());
+    }
+
+    @Override
+    public <T> Single<T> readRange(final long offset, final int length, final Function<ByteBuffer, T> function) {
+        this.failsafe.checkArgument().isNotNegative(logger, offset, "offset");
+        this.failsafe.checkArgument().isNotNegative(logger, length, "length");
+        if (!isStored()) {
+            return DataSource.super.readRange(offset, length, function);
+        }
+        return Single.fromCallable(() -> {
+            final int available = (int) Math.max(0L, Math.min(length, this.entry.size() - offset));
+            final ByteBuffer content = ByteBuffer.allocate(available);
+            try (final FileChannel channel = open()) {
+                readFully(channel, content, dataOffset(channel) + offset);
+            }
+            return function.apply(content);
+        }).subscribeOn(scheduler());
+    }
+
+    @Override
+    public <T> Single<T> readFromWithReader(final Function<Reader, T> function) {
+        return readFrom(inputStream -> {
+            return function.apply(new InputStreamReader(inputStream, this.charset));
+        });
+    }
+
+    @Override
+    public Completable readFromWithReader(final Consumer<Reader> consumer) {
+        return readFrom(inputStream -> {
+            consumer.accept(new InputStreamReader(inputStream, this.charset));
+        });
+    }
+
+    @Override
+    public String toString() {
+        return "ArchiveEntrySource{" +
+                "failsafe=" + this.failsafe +
+                ", archive=" + this.archive +
+                ", entry=" + this.entry +
+                ", lastModified=" + this.lastModified +
+                ", charset=" + this.charset +
+                ", scheduler=" + this.scheduler +
+                "}";
+    }
+}
@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.path.archive;
+
+import com.google.common.collect.ImmutableMap;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+
+final class ArchiveIndex {
+
+    private final Path archive;
+    private final long lastModified;
+    private final long size;
+    private final Map<String, ArchiveEntryRecord> entries;
+
+    ArchiveIndex(final Path archive,
+                 final long lastModified,
+                 final long size,
+                 final Map<String, ArchiveEntryRecord> entries) {
+        this.archive = archive;
+        this.lastModified = lastModified;
+        this.size = size;
+        this.entries = ImmutableMap.copyOf(entries);
+    }
+
+    Path archive() {
+        return this.archive;
+    }
+
+    long lastModified() {
+        return this.lastModified;
+    }
+
+    long size() {
+        return this.size;
+    }
+
+    /**
+     * Whether the index still describes the archive with the given attributes.
+     */
+    boolean matches(final BasicFileAttributes attributes) {
+        return (attributes.lastModifiedTime().toMillis() == this.lastModified) && (attributes.size() == this.size);
+    }
+
+    Optional<ArchiveEntryRecord> entry(final String name) {
+        return Optional.ofNullable(this.entries.get(name));
+    }
+
+    Collection<ArchiveEntryRecord> entries() {
+        return this.entries.values();
+    }
+
+    int entryCount() {
+        return this.entries.size();
+    }
+
+    @Override
+    public String toString() {
+        return "ArchiveIndex{" +
+                "archive=" + this.archive +
+                ", lastModified=" + this.lastModified +
+                ", size=" + this.size +
+                ", entries=" + this.entries.size() +
+                "}";
+    }
+}
@@ -0,0 +1,125 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.path.archive;
+
+import com.google.common.collect.Maps;
+import com.google.common.hash.Hashing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Persists archive indexes, keyed by the archive path and validated against its modification time and size.
+ */
+final class ArchiveIndexStore {
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(ArchiveIndexStore.class);
+
+    private static final int MAGIC = 0x52495831;
+    private static final String SUFFIX = ".index";
+
+    private final Path directory;
+
+    ArchiveIndexStore(final Path directory) {
+        this.directory = directory;
+    }
+
+    private Path indexOf(final Path archive) throws IOException {
+        Files.createDirectories(this.directory);
+        return this.directory.resolve(Hashing.sha256().hashString(archive.toString(), StandardCharsets.UTF_8)
+                + SUFFIX);
+    }
+
+    Optional<ArchiveIndex> load(final Path archive, final BasicFileAttributes attributes) throws IOException {
+        try (final DataInputStream input = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(indexOf(archive))))) {
+            if ((input.readInt() != MAGIC) || !archive.toString().equals(input.readUTF())) {
+                return Optional.empty();
+            }
+            final long lastModified = input.readLong();
+            final long size = input.readLong();
+            if ((lastModified != attributes.lastModifiedTime().toMillis()) || (size != attributes.size())) {
+                logger.debug("Index of {} is stale", archive);
+                return Optional.empty();
+            }
+            final int count = input.readInt();
+            // archives may repeat a name, in which case the last entry wins, as it does when extracting
+            final Map<String, ArchiveEntryRecord> entries = Maps.newLinkedHashMap();
+            for (int index = 0; index < count; index++) {
+                final String name = input.readUTF();
+                entries.put(name, new ArchiveEntryRecord(name, input.readUnsignedShort(), input.readLong(),
+                        input.readLong(), input.readLong()));
+            }
+            return Optional.of(new ArchiveIndex(archive, lastModified, size, entries));
+        } catch (final NoSuchFileException e) {
+            return Optional.empty();
+        }
+    }
+
+    void save(final ArchiveIndex index) throws IOException {
+        final Path target = indexOf(index.archive());
+        final Path part = Files.createTempFile(this.directory, "", SUFFIX);
+        try (final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(part)))) {
+            output.writeInt(MAGIC);
+            output.writeUTF(index.archive().toString());
+            output.writeLong(index.lastModified());
+            output.writeLong(index.size());
+            output.writeInt(index.entryCount());
+            for (final ArchiveEntryRecord entry : index.entries()) {
+                output.writeUTF(entry.name());
+                output.writeShort(entry.method());
+                output.writeLong(entry.compressedSize());
+                output.writeLong(entry.size());
+                output.writeLong(entry.localHeaderOffset());
+            }
+        }
+        Files.move(part, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    void delete(final Path archive) throws IOException {
+        Files.deleteIfExists(indexOf(archive));
+    }
+
+    @Override
+    public String toString() {
+        return "ArchiveIndexStore{" +
+                "directory=" + this.directory +
+                "}";
+    }
+}
@@ -0,0 +1,170 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.path.archive;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.google.inject.Inject;
+import io.reactivex.Scheduler;
+import org.rookit.failsafe.Failsafe;
+import org.rookit.io.data.IOScheduler;
+import org.rookit.io.data.DataSource;
+import org.rookit.io.path.PathConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+final class BaseArchiveIndexService implements ArchiveIndexService {
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(BaseArchiveIndexService.class);
+
+    private static final long MAX_INDEXED_ENTRIES = 1_000_000L;
+    private static final String INDEX_DIRECTORY = "archive-index";
+
+    private final Failsafe failsafe;
+    private final Cache<Path, ArchiveIndex> indexes;
+    private final ArchiveIndexStore store;
+    /**
+     * Archives written through a file system that is still open, whose indexes are stale.
+     */
+    private final Set<Path> written;
+    private final Charset charset;
+    private final Scheduler scheduler;
+
+    @Inject
+    private BaseArchiveIndexService(final Failsafe failsafe,
+                                    final PathConfig config,
+                                    final Charset charset,
+                                    @IOScheduler final Scheduler scheduler) {
+        this.failsafe = failsafe;
+        this.indexes = CacheBuilder.newBuilder()
+                .maximumWeight(MAX_INDEXED_ENTRIES)
+                .<Path, ArchiveIndex>weigher((archive, index) -> index.entryCount() + 1)
+                .build();
+        this.store = new ArchiveIndexStore(config.temporaryDirectory().resolve(INDEX_DIRECTORY));
+        this.written = ConcurrentHashMap.newKeySet();
+        this.charset = charset;
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public Optional<DataSource> find(final Path archive, final String entry) throws IOException {
+        final Path key = archive.toAbsolutePath().normalize();
+        if (this.written.contains(key)) {
+            return Optional.empty();
+        }
+        final BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(key, BasicFileAttributes.class);
+        } catch (final NoSuchFileException e) {
+            return Optional.empty();
+        }
+        final ArchiveIndex index = index(key, attributes);
+        final String name = entry.startsWith("/") ? entry.substring(1) : entry;
+        return index.entry(name)
+                .filter(record -> (record.method() == ArchiveEntryRecord.STORED)
+                        || (record.method() == ArchiveEntryRecord.DEFLATED))
+                .map(record -> new ArchiveEntrySource(this.failsafe, key, record, index.lastModified(),
+                        this.charset, this.scheduler));
+    }
+
+    private ArchiveIndex index(final Path archive, final BasicFileAttributes attributes) throws IOException {
+        final ArchiveIndex cached = this.indexes.getIfPresent(archive);
+        if ((cached != null) && cached.matches(attributes)) {
+            return cached;
+        }
+        if (cached != null) {
+            this.indexes.invalidate(archive);
+        }
+        try {
+            final ArchiveIndex index = this.indexes.get(archive, () -> load(archive, attributes));
+            // a concurrent lookup may have raced a modification of the archive
+            return index.matches(attributes) ? index : load(archive, attributes);
+        } catch (final ExecutionException | UncheckedExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private ArchiveIndex load(final Path archive, final BasicFileAttributes attributes) throws IOException {
+        final Optional<ArchiveIndex> stored = this.store.load(archive, attributes);
+        if (stored.isPresent()) {
+            return stored.get();
+        }
+        logger.debug("Indexing {}", archive);
+        final ArchiveIndex index = CentralDirectoryParser.parse(archive, attributes);
+        this.store.save(index);
+        return index;
+    }
+
+    @Override
+    public void invalidate(final Path archive) {
+        final Path key = archive.toAbsolutePath().normalize();
+        this.indexes.invalidate(key);
+        try {
+            this.store.delete(key);
+        } catch (final IOException e) {
+            logger.warn("Cannot delete the index of {}", key, e);
+        }
+    }
+
+    @Override
+    public void written(final Path archive) {
+        this.written.add(archive.toAbsolutePath().normalize());
+    }
+
+    @Override
+    public void closed(final Path archive) {
+        final Path key = archive.toAbsolutePath().normalize();
+        if (this.written.remove(key)) {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "BaseArchiveIndexService{" +
+                "failsafe=" + this.failsafe +
+                ", indexes=" + this.indexes +
+                ", store=" + this.store +
+                ", written=" + this.written +
+                ", charset=" + this.charset +
+                ", scheduler=" + this.scheduler +
+                "}";
+    }
+}
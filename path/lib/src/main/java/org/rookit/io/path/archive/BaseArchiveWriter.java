@@ -0,0 +1,171 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.path.archive;
+
+import com.google.inject.Inject;
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Scheduler;
+import org.rookit.io.data.IOScheduler;
+import org.rookit.io.path.PathConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipException;
+
+final class BaseArchiveWriter implements ArchiveWriter {
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(BaseArchiveWriter.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_NAME_LENGTH = 0xFFFF;
+    private static final int DOS_EPOCH = 1980;
+
+    private final int parallelism;
+    private final int compressionLevel;
+    private final Scheduler scheduler;
+
+    @Inject
+    private BaseArchiveWriter(final PathConfig config, @IOScheduler final Scheduler scheduler) {
+        this.parallelism = Math.max(1, config.archiveParallelism());
+        this.compressionLevel = config.archiveCompressionLevel();
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public Completable write(final Path archive, final Flowable<ArchiveEntry> entries) {
+        return Completable.defer(() -> {
+            final Path target = archive.toAbsolutePath();
+            final Path part = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".part");
+            // compressed in parallel, but emitted (and thus written) in the order of the entries
+            final Flowable<CompressedEntry> compressed = entries.concatMapEager(entry -> entry.source()
+                    .readFromWithBuffer(BaseArchiveWriter::toArray)
+                    .subscribeOn(this.scheduler)
+                    .observeOn(this.scheduler)
+                    .map(content -> compress(entry, content))
+                    .toFlowable(), this.parallelism, 1);
+
+            return Completable.using(
+                    () -> new ZipStreamWriter(new BufferedOutputStream(Files.newOutputStream(part), BUFFER_SIZE)),
+                    writer -> compressed
+                            .doOnNext(writer::write)
+                            .ignoreElements()
+                            .andThen(Completable.fromAction(writer::finish)),
+                    ZipStreamWriter::close)
+                    .andThen(Completable.fromAction(() -> {
+                        Files.move(part, target, StandardCopyOption.REPLACE_EXISTING,
+                                StandardCopyOption.ATOMIC_MOVE);
+                        logger.debug("Wrote archive {}", target);
+                    }))
+                    .doOnError(error -> Files.deleteIfExists(part))
+                    .doOnDispose(() -> Files.deleteIfExists(part));
+        });
+    }
+
+    private CompressedEntry compress(final ArchiveEntry entry, final byte[] content) throws IOException {
+        final byte[] name = entry.name().getBytes(StandardCharsets.UTF_8);
+        if (name.length > MAX_NAME_LENGTH) {
+            throw new ZipException("Entry name is too long: " + entry.name());
+        }
+        final CRC32 crc = new CRC32();
+        crc.update(content);
+        final long dosTime = dosTime(entry.source().lastModified().orElseGet(Instant::now));
+
+        if (entry.compression() != ArchiveCompression.STORED) {
+            final byte[] deflated = deflate(content);
+            final int length = deflated.length;
+            if ((entry.compression() == ArchiveCompression.DEFLATED) || (length < content.length)) {
+                return new CompressedEntry(name, ArchiveEntryRecord.DEFLATED, crc.getValue(), content.length,
+                        deflated, length, dosTime);
+            }
+        }
+        return new CompressedEntry(name, ArchiveEntryRecord.STORED, crc.getValue(), content.length,
+                content, content.length, dosTime);
+    }
+
+    private static byte[] toArray(final ByteBuffer buffer) {
+        if (buffer.hasArray() && (buffer.arrayOffset() == 0) && (buffer.position() == 0)
+                && (buffer.remaining() == buffer.array().length)) {
+            return buffer.array();
+        }
+        final byte[] content = new byte[buffer.remaining()];
+        buffer.get(content);
+        return content;
+    }
+
+    private byte[] deflate(final byte[] content) {
+        final Deflater deflater = new Deflater(this.compressionLevel, true);
+        try {
+            deflater.setInput(content);
+            deflater.finish();
+            byte[] output = new byte[Math.max(64, content.length + (content.length >> 6) + 64)];
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == output.length) {
+                    output = Arrays.copyOf(output, output.length << 1);
+                }
+                length += deflater.deflate(output, length, output.length - length);
+            }
+            return (length == output.length) ? output : Arrays.copyOf(output, length);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static long dosTime(final Instant instant) {
+        final LocalDateTime time = LocalDateTime.ofInstant(instant, ZoneId.systemDefault());
+        if (time.getYear() < DOS_EPOCH) {
+            return (1 << 21) | (1 << 16);
+        }
+        return ((long) (time.getYear() - DOS_EPOCH) << 25)
+                | ((long) time.getMonthValue() << 21)
+                | ((long) time.getDayOfMonth() << 16)
+                | ((long) time.getHour() << 11)
+                | ((long) time.getMinute() << 5)
+                | ((long) time.getSecond() >> 1);
+    }
+
+    @Override
+    public String toString() {
+        return "BaseArchiveWriter{" +
+                "parallelism=" + this.parallelism +
+                ", compressionLevel=" + this.compressionLevel +
+                ", scheduler=" + this.scheduler +
+                "}";
+    }
+}
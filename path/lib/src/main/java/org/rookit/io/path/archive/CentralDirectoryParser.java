@@ -0,0 +1,168 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.path.archive;
+
+import com.google.common.collect.Maps;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.zip.ZipException;
+
+/**
+ * Reads the central directory of a zip archive, including its zip64 extensions.
+ */
+final class CentralDirectoryParser {
+
+    private static final int END_SIGNATURE = 0x06054b50;
+    private static final int END_SIZE = 22;
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int ZIP64_LOCATOR_SIZE = 20;
+    private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+    private static final int ZIP64_END_SIZE = 56;
+    private static final int HEADER_SIGNATURE = 0x02014b50;
+    private static final int HEADER_SIZE = 46;
+    private static final int ZIP64_EXTRA = 0x0001;
+    private static final int MAX_COMMENT = 0xFFFF;
+    private static final long UNSIGNED_INT = 0xFFFFFFFFL;
+    private static final int FLAG_ENCRYPTED = 1;
+
+    private CentralDirectoryParser() {}
+
+    static ArchiveIndex parse(final Path archive, final BasicFileAttributes attributes) throws IOException {
+        try (final FileChannel channel = FileChannel.open(archive, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            final ByteBuffer tail = read(channel, Math.max(0L, size - END_SIZE - MAX_COMMENT),
+                    (int) Math.min(size, END_SIZE + MAX_COMMENT));
+            final int end = findEnd(tail);
+            long entries = Short.toUnsignedLong(tail.getShort(end + 10));
+            long directorySize = Integer.toUnsignedLong(tail.getInt(end + 12));
+            long directoryOffset = Integer.toUnsignedLong(tail.getInt(end + 16));
+
+            final long locator = (size - tail.capacity()) + end - ZIP64_LOCATOR_SIZE;
+            if (locator >= 0L) {
+                final ByteBuffer zip64Locator = read(channel, locator, ZIP64_LOCATOR_SIZE);
+                if (zip64Locator.getInt(0) == ZIP64_LOCATOR_SIGNATURE) {
+                    final ByteBuffer zip64End = read(channel, zip64Locator.getLong(8), ZIP64_END_SIZE);
+                    if (zip64End.getInt(0) != ZIP64_END_SIGNATURE) {
+                        throw new ZipException("Invalid zip64 end of central directory in " + archive);
+                    }
+                    entries = zip64End.getLong(32);
+                    directorySize = zip64End.getLong(40);
+                    directoryOffset = zip64End.getLong(48);
+                }
+            }
+            if (directorySize > Integer.MAX_VALUE) {
+                throw new ZipException("Central directory of " + archive + " is too large: " + directorySize);
+            }
+            final ByteBuffer directory = read(channel, directoryOffset, (int) directorySize);
+            return new ArchiveIndex(archive, attributes.lastModifiedTime().toMillis(), attributes.size(),
+                    parseEntries(archive, directory, entries));
+        }
+    }
+
+    private static ByteBuffer read(final FileChannel channel, final long position, final int length)
+            throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new ZipException("Unexpected end of archive at " + (position + buffer.position()));
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static int findEnd(final ByteBuffer tail) throws ZipException {
+        for (int position = tail.limit() - END_SIZE; position >= 0; position--) {
+            // the comment length has to reach the end of the file, or the signature is part of the comment
+            if ((tail.getInt(position) == END_SIGNATURE)
+                    && ((position + END_SIZE + Short.toUnsignedInt(tail.getShort(position + 20))) == tail.limit())) {
+                return position;
+            }
+        }
+        throw new ZipException("Not a zip archive: missing end of central directory");
+    }
+
+    private static Map<String, ArchiveEntryRecord> parseEntries(final Path archive,
+                                                                final ByteBuffer directory,
+                                                                final long count) throws ZipException {
+        // archives may repeat a name, in which case the last entry wins, as it does when extracting
+        final Map<String, ArchiveEntryRecord> entries = Maps.newLinkedHashMap();
+        int position = 0;
+        for (long index = 0L; index < count; index++) {
+            if (directory.getInt(position) != HEADER_SIGNATURE) {
+                throw new ZipException("Invalid central directory header in " + archive + " at " + position);
+            }
+            final int flags = Short.toUnsignedInt(directory.getShort(position + 8));
+            final int method = Short.toUnsignedInt(directory.getShort(position + 10));
+            long compressedSize = Integer.toUnsignedLong(directory.getInt(position + 20));
+            long size = Integer.toUnsignedLong(directory.getInt(position + 24));
+            final int nameLength = Short.toUnsignedInt(directory.getShort(position + 28));
+            final int extraLength = Short.toUnsignedInt(directory.getShort(position + 30));
+            final int commentLength = Short.toUnsignedInt(directory.getShort(position + 32));
+            long localHeaderOffset = Integer.toUnsignedLong(directory.getInt(position + 42));
+
+            final byte[] name = new byte[nameLength];
+            final ByteBuffer nameView = directory.duplicate();
+            nameView.position(position + HEADER_SIZE);
+            nameView.get(name);
+
+            // zip64 values replace, in order, only the fields that overflowed
+            int extra = position + HEADER_SIZE + nameLength;
+            final int extraEnd = extra + extraLength;
+            while ((extra + 4) <= extraEnd) {
+                final int id = Short.toUnsignedInt(directory.getShort(extra));
+                final int length = Short.toUnsignedInt(directory.getShort(extra + 2));
+                if (id == ZIP64_EXTRA) {
+                    int field = extra + 4;
+                    if (size == UNSIGNED_INT) {
+                        size = directory.getLong(field);
+                        field += 8;
+                    }
+                    if (compressedSize == UNSIGNED_INT) {
+                        compressedSize = directory.getLong(field);
+                        field += 8;
+                    }
+                    if (localHeaderOffset == UNSIGNED_INT) {
+                        localHeaderOffset = directory.getLong(field);
+                    }
+                }
+                extra += 4 + length;
+            }
+
+            final String entryName = new String(name, StandardCharsets.UTF_8);
+            if (((flags & FLAG_ENCRYPTED) == 0) && !entryName.endsWith("/")) {
+                entries.put(entryName, new ArchiveEntryRecord(entryName, method, compressedSize, size,
+                        localHeaderOffset));
+            }
+            position = extraEnd + commentLength;
+        }
+        return entries;
+    }
+}
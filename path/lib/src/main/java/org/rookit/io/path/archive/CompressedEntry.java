@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.path.archive;
+
+/**
+ * An archive entry ready to be written: its content already compressed (or not) and checksummed.
+ */
+final class CompressedEntry {
+
+    private final byte[] name;
+    private final int method;
+    private final long crc;
+    private final long size;
+    private final byte[] data;
+    private final int dataLength;
+    private final long dosTime;
+
+    @SuppressWarnings("AssignmentOrReturnOfFieldWithMutableType")
+    CompressedEntry(final byte[] name,
+                    final int method,
+                    final long crc,
+                    final long size,
+                    final byte[] data,
+                    final int dataLength,
+                    final long dosTime) {
+        this.name = name;
+        this.method = method;
+        this.crc = crc;
+        this.size = size;
+        this.data = data;
+        this.dataLength = dataLength;
+        this.dosTime = dosTime;
+    }
+
+    @SuppressWarnings("AssignmentOrReturnOfFieldWithMutableType")
+    byte[] name() {
+        return this.name;
+    }
+
+    int method() {
+        return this.method;
+    }
+
+    long crc() {
+        return this.crc;
+    }
+
+    long size() {
+        return this.size;
+    }
+
+    @SuppressWarnings("AssignmentOrReturnOfFieldWithMutableType")
+    byte[] data() {
+        return this.data;
+    }
+
+    int dataLength() {
+        return this.dataLength;
+    }
+
+    long dosTime() {
+        return this.dosTime;
+    }
+
+    @Override
+    public String toString() {
+        return "CompressedEntry{" +
+                "nameLength=" + this.name.length +
+                ", method=" + this.method +
+                ", crc=" + this.crc +
+                ", size=" + this.size +
+                ", dataLength=" + this.dataLength +
+                ", dosTime=" + this.dosTime +
+                "}";
+    }
+}
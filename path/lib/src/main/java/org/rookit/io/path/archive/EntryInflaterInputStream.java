@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.path.archive;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Inflates raw deflate data, releasing the native inflater on close.
+ */
+final class EntryInflaterInputStream extends InflaterInputStream {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private boolean trailed;
+
+    EntryInflaterInputStream(final InputStream input) {
+        super(input, new Inflater(true), BUFFER_SIZE);
+    }
+
+    @Override
+    protected void fill() throws IOException {
+        final int read = this.in.read(this.buf, 0, this.buf.length);
+        if (read != -1) {
+            this.len = read;
+            this.inf.setInput(this.buf, 0, read);
+        } else if (!this.trailed) {
+            // a raw inflater may need one extra byte past the compressed data to report its end
+            this.trailed = true;
+            this.buf[0] = 0;
+            this.len = 1;
+            this.inf.setInput(this.buf, 0, 1);
+        } else {
+            throw new EOFException("Unexpected end of deflated entry");
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        } finally {
+            this.inf.end();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "EntryInflaterInputStream{" +
+                "trailed=" + this.trailed +
+                "}";
+    }
+}
@@ -0,0 +1,176 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.path.archive;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.ZipException;
+
+/**
+ * Writes already compressed entries one after the other, followed by the central directory (with zip64 records
+ * whenever sizes, offsets or the entry count overflow the classic format).
+ */
+final class ZipStreamWriter implements Closeable {
+
+    private static final int LOCAL_SIGNATURE = 0x04034b50;
+    private static final int HEADER_SIGNATURE = 0x02014b50;
+    private static final int END_SIGNATURE = 0x06054b50;
+    private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int LOCAL_HEADER_SIZE = 30;
+    private static final int HEADER_SIZE = 46;
+    private static final int END_SIZE = 22;
+    private static final int ZIP64_END_SIZE = 56;
+    private static final int ZIP64_LOCATOR_SIZE = 20;
+    private static final int ZIP64_EXTRA = 0x0001;
+    private static final int VERSION = 20;
+    private static final int ZIP64_VERSION = 45;
+    private static final int FLAG_UTF8 = 0x0800;
+    private static final long UNSIGNED_INT = 0xFFFFFFFFL;
+    private static final int UNSIGNED_SHORT = 0xFFFF;
+
+    private final OutputStream output;
+    private final ByteArrayOutputStream directory;
+    private final Set<String> names;
+    private long position;
+    private long count;
+
+    ZipStreamWriter(final OutputStream output) {
+        this.output = output;
+        this.directory = new ByteArrayOutputStream();
+        this.names = new HashSet<>();
+    }
+
+    private static ByteBuffer buffer(final int size) {
+        return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    void write(final CompressedEntry entry) throws IOException {
+        if (!this.names.add(new String(entry.name(), StandardCharsets.UTF_8))) {
+            throw new ZipException("Duplicate entry: " + new String(entry.name(), StandardCharsets.UTF_8));
+        }
+        final long offset = this.position;
+        final ByteBuffer local = buffer(LOCAL_HEADER_SIZE + entry.name().length);
+        local.putInt(LOCAL_SIGNATURE)
+                .putShort((short) VERSION)
+                .putShort((short) FLAG_UTF8)
+                .putShort((short) entry.method())
+                .putInt((int) entry.dosTime())
+                .putInt((int) entry.crc())
+                .putInt(entry.dataLength())
+                .putInt((int) entry.size())
+                .putShort((short) entry.name().length)
+                .putShort((short) 0)
+                .put(entry.name());
+        this.output.write(local.array());
+        this.output.write(entry.data(), 0, entry.dataLength());
+        this.position += local.capacity() + entry.dataLength();
+        this.count++;
+
+        // only the local offset can outgrow the classic format, entries themselves are array backed
+        final boolean zip64 = offset >= UNSIGNED_INT;
+        final ByteBuffer header = buffer(HEADER_SIZE + entry.name().length + (zip64 ? 12 : 0));
+        header.putInt(HEADER_SIGNATURE)
+                .putShort((short) (zip64 ? ZIP64_VERSION : VERSION))
+                .putShort((short) (zip64 ? ZIP64_VERSION : VERSION))
+                .putShort((short) FLAG_UTF8)
+                .putShort((short) entry.method())
+                .putInt((int) entry.dosTime())
+                .putInt((int) entry.crc())
+                .putInt(entry.dataLength())
+                .putInt((int) entry.size())
+                .putShort((short) entry.name().length)
+                .putShort((short) (zip64 ? 12 : 0))
+                .putShort((short) 0)
+                .putShort((short) 0)
+                .putShort((short) 0)
+                .putInt(0)
+                .putInt((int) (zip64 ? UNSIGNED_INT : offset))
+                .put(entry.name());
+        if (zip64) {
+            header.putShort((short) ZIP64_EXTRA)
+                    .putShort((short) 8)
+                    .putLong(offset);
+        }
+        this.directory.write(header.array());
+    }
+
+    void finish() throws IOException {
+        final long directoryOffset = this.position;
+        final long directorySize = this.directory.size();
+        this.directory.writeTo(this.output);
+        this.position += directorySize;
+
+        final boolean zip64 = (this.count >= UNSIGNED_SHORT) || (directoryOffset >= UNSIGNED_INT)
+                || (directorySize >= UNSIGNED_INT);
+        if (zip64) {
+            final long zip64EndOffset = this.position;
+            final ByteBuffer end = buffer(ZIP64_END_SIZE + ZIP64_LOCATOR_SIZE);
+            end.putInt(ZIP64_END_SIGNATURE)
+                    .putLong(ZIP64_END_SIZE - 12)
+                    .putShort((short) ZIP64_VERSION)
+                    .putShort((short) ZIP64_VERSION)
+                    .putInt(0)
+                    .putInt(0)
+                    .putLong(this.count)
+                    .putLong(this.count)
+                    .putLong(directorySize)
+                    .putLong(directoryOffset)
+                    .putInt(ZIP64_LOCATOR_SIGNATURE)
+                    .putInt(0)
+                    .putLong(zip64EndOffset)
+                    .putInt(1);
+            this.output.write(end.array());
+        }
+        final ByteBuffer end = buffer(END_SIZE);
+        end.putInt(END_SIGNATURE)
+                .putShort((short) 0)
+                .putShort((short) 0)
+                .putShort((short) Math.min(this.count, UNSIGNED_SHORT))
+                .putShort((short) Math.min(this.count, UNSIGNED_SHORT))
+                .putInt((int) Math.min(directorySize, UNSIGNED_INT))
+                .putInt((int) Math.min(directoryOffset, UNSIGNED_INT))
+                .putShort((short) 0);
+        this.output.write(end.array());
+        this.output.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.output.close();
+    }
+
+    @Override
+    public String toString() {
+        return "ZipStreamWriter{" +
+                "position=" + this.position +
+                ", count=" + this.count +
+                "}";
+    }
+}
@@ -0,0 +1,156 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.path.registry;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * The names of the entries directly under a directory, scanned once and then kept current by a watch service.
+ */
+final class DirectoryIndex implements Closeable, DirectoryWatcher.Listener {
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(DirectoryIndex.class);
+
+    private final Path directory;
+    private final Set<String> names;
+    private final Consumer<String> changes;
+    private DirectoryWatcher watcher;
+    private volatile boolean valid;
+
+    private DirectoryIndex(final Path directory, final Consumer<String> changes) {
+        this.directory = directory;
+        this.changes = changes;
+        this.names = ConcurrentHashMap.newKeySet();
+        this.valid = true;
+    }
+
+    /**
+     * Indexes the directory, or fails if its file system cannot watch it. The name of every entry created or
+     * deleted from then on is handed to {@code changes}, after the index is updated.
+     */
+    static DirectoryIndex create(final Path directory,
+                                 final DirectoryWatchService watchService,
+                                 final Consumer<String> changes) throws IOException {
+        final DirectoryIndex index = new DirectoryIndex(directory, changes);
+        // registered before scanning, so that no change falls between the scan and the first event
+        final DirectoryWatcher watcher = watchService.watch(directory, index,
+                StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE);
+        index.watcher = watcher;
+        try {
+            index.scan();
+        } catch (final IOException | RuntimeException e) {
+            watcher.close();
+            throw e;
+        }
+        watcher.start();
+        return index;
+    }
+
+    private void scan() throws IOException {
+        final Set<String> scanned = ConcurrentHashMap.newKeySet();
+        try (final DirectoryStream<Path> stream = Files.newDirectoryStream(this.directory)) {
+            for (final Path path : stream) {
+                scanned.add(path.getFileName().toString());
+            }
+        }
+        this.names.addAll(scanned);
+        this.names.retainAll(scanned);
+        logger.debug("Indexed {} entries in {}", scanned.size(), this.directory);
+    }
+
+    @Override
+    public void changed(final WatchEvent.Kind<?> kind, final String name) {
+        if (kind == StandardWatchEventKinds.ENTRY_CREATE) {
+            this.names.add(name);
+        } else {
+            this.names.remove(name);
+        }
+        this.changes.accept(name);
+    }
+
+    @Override
+    public void overflowed() throws IOException {
+        scan();
+    }
+
+    @Override
+    public void stopped() {
+        logger.info("Dropping the index of {}", this.directory);
+        this.valid = false;
+    }
+
+    /**
+     * Whether the index is still kept current, which stops once the directory is gone or cannot be rescanned.
+     */
+    boolean isValid() {
+        return this.valid;
+    }
+
+    boolean contains(final String name) {
+        return this.names.contains(name);
+    }
+
+    /**
+     * Records an entry created through this process, ahead of its watch event.
+     */
+    void add(final String name) {
+        this.names.add(name);
+    }
+
+    void remove(final String name) {
+        this.names.remove(name);
+    }
+
+    Set<String> names() {
+        return Collections.unmodifiableSet(this.names);
+    }
+
+    @Override
+    public void close() {
+        this.watcher.close();
+    }
+
+    @Override
+    public String toString() {
+        return "DirectoryIndex{" +
+                "directory=" + this.directory +
+                ", names=" + this.names.size() +
+                ", valid=" + this.valid +
+                "}";
+    }
+}
@@ -0,0 +1,194 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.path.registry;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystem;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches directories from a single daemon thread, with one watch service per file system, and dispatches the
+ * events of every directory to its {@link DirectoryWatcher watchers}. The thread only runs while something is
+ * watched, so that watching does not hold a thread of the IO scheduler per directory.
+ */
+final class DirectoryWatchService implements Closeable {
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(DirectoryWatchService.class);
+
+    private static final long POLL_INTERVAL_MILLIS = 100L;
+
+    private static final ThreadFactory THREAD_FACTORY = new ThreadFactoryBuilder()
+            .setNameFormat("rookit-directory-watcher-%d")
+            .setDaemon(true)
+            .build();
+
+    private final Map<FileSystem, WatchService> services;
+    private final ConcurrentMap<WatchKey, List<DirectoryWatcher>> watchers;
+    private boolean running;
+    private boolean closed;
+
+    DirectoryWatchService() {
+        this.services = Maps.newHashMap();
+        this.watchers = Maps.newConcurrentMap();
+    }
+
+    /**
+     * Registers a watcher for the given kinds of events, which are queued until it is
+     * {@link DirectoryWatcher#start() started}. Fails if the file system of the directory cannot watch it.
+     */
+    @SafeVarargs
+    final synchronized DirectoryWatcher watch(final Path directory,
+                                              final DirectoryWatcher.Listener listener,
+                                              final WatchEvent.Kind<Path>... kinds) throws IOException {
+        if (this.closed) {
+            throw new ClosedWatchServiceException();
+        }
+        final FileSystem fileSystem = directory.getFileSystem();
+        WatchService service = this.services.get(fileSystem);
+        if (service == null) {
+            service = fileSystem.newWatchService();
+            this.services.put(fileSystem, service);
+        }
+        final Set<WatchEvent.Kind<?>> watched = Sets.newHashSet(kinds);
+        for (final DirectoryWatcher watcher : watchersOf(directory)) {
+            watched.addAll(watcher.kinds());
+        }
+        // registering a directory again returns its existing key, so it has to cover what every watcher needs
+        final WatchKey key = directory.register(service, watched.toArray(new WatchEvent.Kind<?>[watched.size()]));
+        final DirectoryWatcher watcher = new DirectoryWatcher(directory, key, Sets.newHashSet(kinds), listener,
+                this);
+        this.watchers.computeIfAbsent(key, ignored -> new CopyOnWriteArrayList<>()).add(watcher);
+        if (!this.running) {
+            this.running = true;
+            THREAD_FACTORY.newThread(this::run).start();
+        }
+        return watcher;
+    }
+
+    private List<DirectoryWatcher> watchersOf(final Path directory) {
+        for (final List<DirectoryWatcher> registered : this.watchers.values()) {
+            if (!registered.isEmpty() && registered.get(0).directory().equals(directory)) {
+                return registered;
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    synchronized void unwatch(final DirectoryWatcher watcher) {
+        final List<DirectoryWatcher> registered = this.watchers.get(watcher.key());
+        if (registered != null) {
+            registered.remove(watcher);
+            if (registered.isEmpty()) {
+                this.watchers.remove(watcher.key());
+                watcher.key().cancel();
+            }
+        }
+    }
+
+    private void run() {
+        while (true) {
+            final List<WatchService> watched;
+            synchronized (this) {
+                if (this.closed || this.watchers.isEmpty()) {
+                    this.running = false;
+                    return;
+                }
+                watched = ImmutableList.copyOf(this.services.values());
+            }
+            // more services than milliseconds in the interval would round the timeout down to a busy spin
+            final long timeout = Math.max(1L, POLL_INTERVAL_MILLIS / watched.size());
+            for (final WatchService service : watched) {
+                try {
+                    final WatchKey key = service.poll(timeout, TimeUnit.MILLISECONDS);
+                    if (key != null) {
+                        dispatch(key);
+                    }
+                } catch (final ClosedWatchServiceException e) {
+                    logger.debug("{} was closed", service);
+                } catch (final InterruptedException e) {
+                    logger.debug("Stopped watching directories");
+                    synchronized (this) {
+                        this.running = false;
+                    }
+                    return;
+                }
+            }
+        }
+    }
+
+    private void dispatch(final WatchKey key) {
+        final List<WatchEvent<?>> events = key.pollEvents();
+        final boolean valid = key.reset();
+        final List<DirectoryWatcher> registered = this.watchers.get(key);
+        if (registered != null) {
+            for (final DirectoryWatcher watcher : registered) {
+                watcher.deliver(events, valid);
+            }
+        }
+        if (!valid) {
+            this.watchers.remove(key);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        this.closed = true;
+        this.watchers.clear();
+        for (final WatchService service : this.services.values()) {
+            service.close();
+        }
+        this.services.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "DirectoryWatchService{" +
+                "services=" + this.services.size() +
+                ", watchers=" + this.watchers.size() +
+                ", running=" + this.running +
+                ", closed=" + this.closed +
+                "}";
+    }
+}
@@ -0,0 +1,162 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.path.registry;
+
+import com.google.common.collect.Lists;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Delivers the changes of a directory's entries to a listener, from the thread of the
+ * {@link DirectoryWatchService} it was registered with.
+ */
+final class DirectoryWatcher implements Closeable {
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(DirectoryWatcher.class);
+
+    interface Listener {
+
+        void changed(WatchEvent.Kind<?> kind, String name);
+
+        /**
+         * Events were lost, so anything known about the directory has to be refreshed.
+         */
+        void overflowed() throws IOException;
+
+        /**
+         * No more events will be delivered, either because the directory is gone or because the listener failed.
+         */
+        void stopped();
+
+    }
+
+    private final Path directory;
+    private final WatchKey key;
+    private final Set<WatchEvent.Kind<?>> kinds;
+    private final Listener listener;
+    private final DirectoryWatchService service;
+    private final List<WatchEvent<?>> pending;
+    private boolean started;
+    private boolean stopped;
+
+    DirectoryWatcher(final Path directory,
+                     final WatchKey key,
+                     final Set<WatchEvent.Kind<?>> kinds,
+                     final Listener listener,
+                     final DirectoryWatchService service) {
+        this.directory = directory;
+        this.key = key;
+        this.kinds = kinds;
+        this.listener = listener;
+        this.service = service;
+        this.pending = Lists.newArrayList();
+    }
+
+    Path directory() {
+        return this.directory;
+    }
+
+    WatchKey key() {
+        return this.key;
+    }
+
+    Set<WatchEvent.Kind<?>> kinds() {
+        return this.kinds;
+    }
+
+    /**
+     * Delivers the events queued since the watcher was registered, and from then on every event as it comes.
+     */
+    synchronized void start() {
+        this.started = true;
+        final List<WatchEvent<?>> queued = Lists.newArrayList(this.pending);
+        this.pending.clear();
+        deliver(queued, true);
+    }
+
+    synchronized void deliver(final List<WatchEvent<?>> events, final boolean valid) {
+        if (this.stopped) {
+            return;
+        }
+        if (!this.started) {
+            this.pending.addAll(events);
+            if (!valid) {
+                stop();
+            }
+            return;
+        }
+        try {
+            for (final WatchEvent<?> event : events) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    this.listener.overflowed();
+                } else if (this.kinds.contains(event.kind())) {
+                    this.listener.changed(event.kind(), event.context().toString());
+                }
+            }
+        } catch (final IOException | RuntimeException e) {
+            logger.warn("Stopped watching {}", this.directory, e);
+            stop();
+            return;
+        }
+        if (!valid) {
+            logger.info("{} is no longer accessible", this.directory);
+            stop();
+        }
+    }
+
+    private void stop() {
+        this.stopped = true;
+        this.service.unwatch(this);
+        this.listener.stopped();
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            this.stopped = true;
+        }
+        this.service.unwatch(this);
+    }
+
+    @Override
+    public String toString() {
+        return "DirectoryWatcher{" +
+                "directory=" + this.directory +
+                ", kinds=" + this.kinds +
+                ", listener=" + this.listener +
+                ", started=" + this.started +
+                ", stopped=" + this.stopped +
+                "}";
+    }
+}
@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.path.registry;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+final class FileSystemEntry {
+
+    private static final int EVICTED = -1;
+
+    private final FileSystem fileSystem;
+    private final boolean owned;
+    private final AtomicInteger references;
+    private final CountDownLatch closed;
+    private volatile long lastAccess;
+
+    FileSystemEntry(final FileSystem fileSystem, final boolean owned) {
+        this.fileSystem = fileSystem;
+        this.owned = owned;
+        this.references = new AtomicInteger();
+        this.closed = new CountDownLatch(1);
+        this.lastAccess = System.nanoTime();
+    }
+
+    FileSystem fileSystem() {
+        return this.fileSystem;
+    }
+
+    boolean isOpen() {
+        return (this.references.get() != EVICTED) && this.fileSystem.isOpen();
+    }
+
+    void touch() {
+        this.lastAccess = System.nanoTime();
+    }
+
+    boolean retain() {
+        while (true) {
+            final int current = this.references.get();
+            if (current == EVICTED) {
+                return false;
+            }
+            if (this.references.compareAndSet(current, current + 1)) {
+                touch();
+                return true;
+            }
+        }
+    }
+
+    void release() {
+        touch();
+        this.references.updateAndGet(current -> (current > 0) ? (current - 1) : current);
+    }
+
+    /**
+     * Marks the entry as evicted if it is unused and idle for longer than the timeout. Only file systems
+     * opened by the registry are ever evicted.
+     */
+    boolean evictIfIdle(final long now, final long timeoutNanos) {
+        return this.owned
+                && ((now - this.lastAccess) > timeoutNanos)
+                && this.references.compareAndSet(0, EVICTED);
+    }
+
+    void close() throws IOException {
+        try {
+            if (this.owned) {
+                this.fileSystem.close();
+            }
+        } finally {
+            this.closed.countDown();
+        }
+    }
+
+    void awaitClosed() {
+        Uninterruptibles.awaitUninterruptibly(this.closed);
+    }
+
+    @Override
+    public String toString() {
+        return "FileSystemEntry{" +
+                "fileSystem=" + this.fileSystem +
+                ", owned=" + this.owned +
+                ", references=" + this.references +
+                ", lastAccess=" + this.lastAccess +
+                "}";
+    }
+}
@@ -23,25 +23,75 @@ package org.rookit.io.path.registry;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import io.reactivex.Maybe;
+import io.reactivex.Scheduler;
 import io.reactivex.Single;
-import io.reactivex.SingleSource;
-import org.rookit.utils.registry.Registry;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.disposables.Disposables;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.nio.file.FileSystem;
 import java.nio.file.FileSystemAlreadyExistsException;
 import java.nio.file.FileSystems;
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
-final class FileSystemRegistry implements Registry<URI, FileSystem> {
+final class FileSystemRegistry implements RefCountedRegistry<URI, FileSystem> {
 
-    private final List<FileSystem> fileSystems;
+    /**
+     * Logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(FileSystemRegistry.class);
 
-    FileSystemRegistry() {
-        // TODO this is not thread safe
-        this.fileSystems = Lists.newArrayList();
+    private static final String ARCHIVE_SEPARATOR = "!/";
+
+    private final ConcurrentMap<String, FileSystemEntry> fileSystems;
+    /**
+     * Evicted entries whose file system is still being closed, which their root cannot be opened again before.
+     */
+    private final ConcurrentMap<String, FileSystemEntry> closing;
+    private final long idleTimeoutNanos;
+    /**
+     * Told the root of every file system closed by the registry, before the root can be opened again.
+     */
+    private final Consumer<URI> closeListener;
+    private final Disposable eviction;
+
+    FileSystemRegistry(final Duration idleTimeout, final Scheduler scheduler, final Consumer<URI> closeListener) {
+        this.fileSystems = Maps.newConcurrentMap();
+        this.closeListener = closeListener;
+        this.closing = Maps.newConcurrentMap();
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        if (idleTimeout.isZero()) {
+            this.eviction = Disposables.disposed();
+        } else {
+            final long period = Math.max(1L, idleTimeout.toMillis() / 2L);
+            this.eviction = scheduler.schedulePeriodicallyDirect(this::evictIdle, period, period,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * The root that identifies the file system of an URI: the archive for archive entries
+     * (jar:file:/a.jar!/entry), or the scheme and authority otherwise.
+     */
+    private static String rootOf(final URI uri) {
+        final String specific = uri.getRawSchemeSpecificPart();
+        final int separator = specific.indexOf(ARCHIVE_SEPARATOR);
+        if (separator >= 0) {
+            return uri.getScheme() + ':' + specific.substring(0, separator);
+        }
+        final String authority = uri.getRawAuthority();
+        return (authority == null) ? uri.getScheme() : (uri.getScheme() + "://" + authority);
     }
 
     @Override
@@ -51,37 +101,127 @@ final class FileSystemRegistry implements Registry<URI, FileSystem> {
 
     @Override
     public Single<FileSystem> fetch(final URI key) {
-        return Single.just(key)
-                .map(this::createFileSystem)
-                .onErrorResumeNext(throwable -> handleCreationError(key, throwable));
+        final FileSystemEntry entry = this.fileSystems.get(rootOf(key));
+        if ((entry != null) && entry.isOpen()) {
+            entry.touch();
+            return Single.just(entry.fileSystem());
+        }
+        return Single.fromCallable(() -> open(key).fileSystem());
     }
 
-    private SingleSource<FileSystem> handleCreationError(final URI key, final Throwable throwable) {
-        if (throwable instanceof FileSystemAlreadyExistsException) {
-            return Single.fromCallable(() -> FileSystems.getFileSystem(key));
+    @Override
+    public Single<FileSystem> acquire(final URI key) {
+        return Single.fromCallable(() -> {
+            // lock free for a file system that is already open, the common case
+            final FileSystemEntry cached = this.fileSystems.get(rootOf(key));
+            if ((cached != null) && cached.retain()) {
+                if (cached.fileSystem().isOpen()) {
+                    return cached.fileSystem();
+                }
+                cached.release();
+            }
+            while (true) {
+                final FileSystemEntry entry = open(key);
+                // an entry evicted in the meantime is replaced on the next attempt
+                if (entry.retain()) {
+                    return entry.fileSystem();
+                }
+            }
+        });
+    }
+
+    @Override
+    public void release(final URI key) {
+        final FileSystemEntry entry = this.fileSystems.get(rootOf(key));
+        if (entry != null) {
+            entry.release();
         }
-        return Single.error(throwable);
     }
 
-    private FileSystem createFileSystem(final URI key) throws IOException {
-        final FileSystem fileSystem = FileSystems.newFileSystem(key, ImmutableMap.of());
-        this.fileSystems.add(fileSystem);
+    private FileSystemEntry open(final URI key) throws IOException {
+        final String root = rootOf(key);
+        while (true) {
+            final FileSystemEntry closed = this.closing.get(root);
+            if (closed != null) {
+                closed.awaitClosed();
+            }
+            final FileSystemEntry entry;
+            try {
+                // computing under the map's lock keeps concurrent callers from opening the same root twice
+                entry = this.fileSystems.compute(root, (ignored, existing) -> {
+                    if ((existing != null) && existing.isOpen()) {
+                        existing.touch();
+                        return existing;
+                    }
+                    // the provider still knows a file system being closed, so it is waited for first
+                    return this.closing.containsKey(root) ? existing : createFileSystem(key);
+                });
+            } catch (final UncheckedIOException e) {
+                throw e.getCause();
+            }
+            if ((entry != null) && entry.isOpen()) {
+                return entry;
+            }
+        }
+    }
+
+    private static FileSystemEntry createFileSystem(final URI key) {
+        try {
+            return new FileSystemEntry(FileSystems.newFileSystem(key, ImmutableMap.of()), true);
+        } catch (final FileSystemAlreadyExistsException e) {
+            // opened outside of the registry, so it is also closed outside of it
+            return new FileSystemEntry(FileSystems.getFileSystem(key), false);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
-        return fileSystem;
+    private void evictIdle() {
+        final long now = System.nanoTime();
+        final List<String> evicted = Lists.newArrayList();
+        for (final String root : this.fileSystems.keySet()) {
+            // evicted and removed under the map's lock, but closed outside of it, as closing a modified archive
+            // rewrites it
+            this.fileSystems.computeIfPresent(root, (key, entry) -> {
+                if (entry.evictIfIdle(now, this.idleTimeoutNanos)) {
+                    this.closing.put(key, entry);
+                    evicted.add(key);
+                    return null;
+                }
+                return entry;
+            });
+        }
+        for (final String root : evicted) {
+            final FileSystemEntry entry = this.closing.get(root);
+            logger.debug("Closing idle file system {}", root);
+            close(root, entry);
+            this.closing.remove(root, entry);
+        }
+    }
+
+    private void close(final String root, final FileSystemEntry entry) {
+        try {
+            entry.close();
+        } catch (final IOException e) {
+            logger.warn("Cannot close {}", entry, e);
+        }
+        this.closeListener.accept(URI.create(root));
     }
 
     @Override
-    public void close() throws IOException {
-        // TODO this needs some care
-        for (final FileSystem fileSystem : this.fileSystems) {
-            fileSystem.close();
+    public void close() {
+        this.eviction.dispose();
+        for (final Map.Entry<String, FileSystemEntry> entry : this.fileSystems.entrySet()) {
+            close(entry.getKey(), entry.getValue());
         }
+        this.fileSystems.clear();
     }
 
     @Override
     public String toString() {
         return "FileSystemRegistry{" +
-                "fileSystems=" + this.fileSystems +
+                "fileSystems=" + this.fileSystems.keySet() +
+                ", idleTimeoutNanos=" + this.idleTimeoutNanos +
                 "}";
     }
 }
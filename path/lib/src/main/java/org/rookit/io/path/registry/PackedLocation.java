@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.path.registry;
+
+/**
+ * Where the current value of a key of a packed registry lives.
+ */
+final class PackedLocation {
+
+    private final PackedSegment segment;
+    private final long offset;
+    private final int length;
+    private final int recordSize;
+    private final long timestamp;
+
+    PackedLocation(final PackedSegment segment,
+                   final long offset,
+                   final int length,
+                   final int recordSize,
+                   final long timestamp) {
+        this.segment = segment;
+        this.offset = offset;
+        this.length = length;
+        this.recordSize = recordSize;
+        this.timestamp = timestamp;
+    }
+
+    PackedSegment segment() {
+        return this.segment;
+    }
+
+    /**
+     * The position of the value (not of its record) in the segment.
+     */
+    long offset() {
+        return this.offset;
+    }
+
+    int length() {
+        return this.length;
+    }
+
+    int recordSize() {
+        return this.recordSize;
+    }
+
+    long timestamp() {
+        return this.timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return "PackedLocation{" +
+                "segment=" + this.segment.id() +
+                ", offset=" + this.offset +
+                ", length=" + this.length +
+                ", recordSize=" + this.recordSize +
+                ", timestamp=" + this.timestamp +
+                "}";
+    }
+}
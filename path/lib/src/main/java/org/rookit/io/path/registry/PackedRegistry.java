@@ -0,0 +1,468 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.path.registry;
+
+import io.reactivex.Flowable;
+import io.reactivex.Maybe;
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.disposables.Disposables;
+import org.rookit.failsafe.Failsafe;
+import org.rookit.io.data.DataMetadata;
+import org.rookit.io.data.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+
+/**
+ * A log-structured registry (after Bitcask): values are appended to segment files, and an in-memory index maps
+ * every key to the record holding its current value. Overwritten values are reclaimed by compacting the older
+ * segments, whose live records are copied over to the active one.
+ *
+ * Each record is laid out as {@code crc:int timestamp:long keyLength:int valueLength:int key value}, with a
+ * value length of -1 marking a removed key. The crc covers everything after it.
+ *
+ * The directory is locked for as long as the registry is open, as a second registry appending to the same segments
+ * would corrupt them.
+ */
+final class PackedRegistry implements DirectoryRegistry {
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(PackedRegistry.class);
+
+    private static final String LOCK = ".lock";
+    private static final int HEADER_SIZE = 20;
+    private static final int TOMBSTONE = -1;
+    private static final int MAX_READ_ATTEMPTS = 3;
+    /**
+     * Compaction starts once less than this share of the older segments is live.
+     */
+    private static final double COMPACTION_LIVE_RATIO = 0.5;
+
+    private final Failsafe failsafe;
+    private final Path directory;
+    private final long segmentSize;
+    private final Charset charset;
+    private final Scheduler scheduler;
+    private final ConcurrentMap<String, PackedLocation> index;
+    private final ConcurrentSkipListMap<Long, PackedSegment> segments;
+    /**
+     * Guards appends, so that the order of the records in the log is the order of the index updates.
+     */
+    private final Object writeLock;
+    private final AtomicBoolean compacting;
+    private volatile PackedSegment active;
+    private Disposable compaction;
+    private FileLock lock;
+
+    private PackedRegistry(final Failsafe failsafe,
+                           final Path directory,
+                           final long segmentSize,
+                           final Charset charset,
+                           final Scheduler scheduler) {
+        this.failsafe = failsafe;
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.charset = charset;
+        this.scheduler = scheduler;
+        this.index = new ConcurrentHashMap<>();
+        this.segments = new ConcurrentSkipListMap<>();
+        this.writeLock = new Object();
+        this.compacting = new AtomicBoolean();
+        this.compaction = Disposables.disposed();
+    }
+
+    static PackedRegistry open(final Failsafe failsafe,
+                               final Path directory,
+                               final long segmentSize,
+                               final Duration compactionInterval,
+                               final Charset charset,
+                               final Scheduler scheduler) throws IOException {
+        final PackedRegistry registry = new PackedRegistry(failsafe, directory, segmentSize, charset, scheduler);
+        try {
+            registry.load();
+        } catch (final IOException | RuntimeException e) {
+            registry.close();
+            throw e;
+        }
+        if (!compactionInterval.isZero()) {
+            final long period = compactionInterval.toMillis();
+            registry.compaction = scheduler.schedulePeriodicallyDirect(registry::compactQuietly, period, period,
+                    TimeUnit.MILLISECONDS);
+        }
+        return registry;
+    }
+
+    private void load() throws IOException {
+        Files.createDirectories(this.directory);
+        this.lock = lock(this.directory.resolve(LOCK));
+        final List<Long> ids = new ArrayList<>();
+        try (final DirectoryStream<Path> files = Files.newDirectoryStream(this.directory, "*" + PackedSegment.SUFFIX)) {
+            for (final Path file : files) {
+                ids.add(PackedSegment.idOf(file));
+            }
+        }
+        ids.sort(null);
+        for (final Long id : ids) {
+            final PackedSegment segment = PackedSegment.open(this.directory, id);
+            this.segments.put(id, segment);
+            replay(segment, id.equals(ids.get(ids.size() - 1)));
+        }
+        this.active = ids.isEmpty() ? newSegment(0L) : this.segments.lastEntry().getValue();
+        logger.debug("Loaded {} keys from {} segments of {}", this.index.size(), this.segments.size(),
+                this.directory);
+    }
+
+    private static FileLock lock(final Path file) throws IOException {
+        final FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            final FileLock lock = channel.tryLock();
+            if (lock != null) {
+                return lock;
+            }
+        } catch (final OverlappingFileLockException e) {
+            // locked by another registry of this virtual machine
+            logger.trace("{} is locked within this virtual machine", file, e);
+        } catch (final IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        channel.close();
+        throw new IOException("Packed registry of " + file.getParent() + " is already open");
+    }
+
+    private PackedSegment newSegment(final long id) throws IOException {
+        final PackedSegment segment = PackedSegment.open(this.directory, id);
+        this.segments.put(id, segment);
+        return segment;
+    }
+
+    private void replay(final PackedSegment segment, final boolean last) throws IOException {
+        segment.channel().position(0L);
+        final DataInputStream input = new DataInputStream(new BufferedInputStream(
+                Channels.newInputStream(segment.channel())));
+        long position = 0L;
+        while (position < segment.size()) {
+            try {
+                final int crc = input.readInt();
+                final long timestamp = input.readLong();
+                final int keyLength = input.readInt();
+                final int valueLength = input.readInt();
+                if ((keyLength < 0) || (valueLength < TOMBSTONE)
+                        || ((position + HEADER_SIZE + keyLength + Math.max(0, valueLength)) > segment.size())) {
+                    throw new EOFException("Torn record");
+                }
+                final byte[] key = new byte[keyLength];
+                input.readFully(key);
+                final byte[] value = new byte[Math.max(0, valueLength)];
+                input.readFully(value);
+                if (crc != checksum(timestamp, key, valueLength, ByteBuffer.wrap(value))) {
+                    throw new EOFException("Checksum mismatch");
+                }
+                final int recordSize = HEADER_SIZE + keyLength + value.length;
+                final String name = new String(key, StandardCharsets.UTF_8);
+                if (valueLength == TOMBSTONE) {
+                    update(name, null);
+                } else {
+                    update(name, new PackedLocation(segment, position + HEADER_SIZE + keyLength, valueLength,
+                            recordSize, timestamp));
+                }
+                position += recordSize;
+            } catch (final EOFException e) {
+                logger.warn("Discarding {} bytes of {} after a damaged record at {}", segment.size() - position,
+                        segment, position, e);
+                if (last) {
+                    segment.truncate(position);
+                }
+                return;
+            }
+        }
+    }
+
+    private static int checksum(final long timestamp,
+                                final byte[] key,
+                                final int valueLength,
+                                final ByteBuffer... value) {
+        final CRC32 crc = new CRC32();
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE - 4);
+        header.putLong(timestamp).putInt(key.length).putInt(valueLength).flip();
+        crc.update(header);
+        crc.update(key);
+        for (final ByteBuffer buffer : value) {
+            crc.update(buffer.duplicate());
+        }
+        return (int) crc.getValue();
+    }
+
+    private void update(final String key, final PackedLocation location) {
+        final PackedLocation previous = (location == null) ? this.index.remove(key) : this.index.put(key, location);
+        if (previous != null) {
+            previous.segment().addLiveBytes(-previous.recordSize());
+        }
+        if (location != null) {
+            location.segment().addLiveBytes(location.recordSize());
+        }
+    }
+
+    /**
+     * Appends a record for the key, a removal if there is no value. Must hold the write lock.
+     */
+    private PackedLocation appendLocked(final String key,
+                                       final long timestamp,
+                                       final ByteBuffer... value) throws IOException {
+        final byte[] name = key.getBytes(StandardCharsets.UTF_8);
+        long length = 0L;
+        if (value != null) {
+            for (final ByteBuffer buffer : value) {
+                length += buffer.remaining();
+            }
+        }
+        if (length > (Integer.MAX_VALUE - HEADER_SIZE - name.length)) {
+            throw new IOException("Value of " + key + " is too large for a packed registry: " + length);
+        }
+        final int valueLength = (value == null) ? TOMBSTONE : (int) length;
+        final int recordSize = HEADER_SIZE + name.length + (int) length;
+        if ((this.active.size() > 0L) && ((this.active.size() + recordSize) > this.segmentSize)) {
+            this.active.force();
+            this.active = newSegment(this.active.id() + 1L);
+        }
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(checksum(timestamp, name, valueLength, (value == null) ? new ByteBuffer[0] : value))
+                .putLong(timestamp)
+                .putInt(name.length)
+                .putInt(valueLength)
+                .flip();
+        final ByteBuffer[] buffers = new ByteBuffer[2 + ((value == null) ? 0 : value.length)];
+        buffers[0] = header;
+        buffers[1] = ByteBuffer.wrap(name);
+        for (int index = 2; index < buffers.length; index++) {
+            buffers[index] = value[index - 2].duplicate();
+        }
+        final long position = this.active.append(buffers);
+        return (value == null) ? null : new PackedLocation(this.active, position + HEADER_SIZE + name.length,
+                valueLength, recordSize, timestamp);
+    }
+
+    void put(final String key, final ByteBuffer... value) throws IOException {
+        synchronized (this.writeLock) {
+            update(key, appendLocked(key, System.currentTimeMillis(), value));
+        }
+    }
+
+    void remove(final String key) throws IOException {
+        synchronized (this.writeLock) {
+            if (this.index.containsKey(key)) {
+                appendLocked(key, System.currentTimeMillis(), (ByteBuffer[]) null);
+                update(key, null);
+            }
+        }
+    }
+
+    boolean contains(final String key) {
+        return this.index.containsKey(key);
+    }
+
+    DataMetadata metadata(final String key) {
+        final PackedLocation location = this.index.get(key);
+        if (location == null) {
+            return DataMetadata.absent();
+        }
+        return DataMetadata.of(OptionalLong.of(location.length()),
+                Optional.of(Instant.ofEpochMilli(location.timestamp())));
+    }
+
+    /**
+     * Reads up to {@code length} bytes of the current value of the key, starting at {@code offset}.
+     */
+    ByteBuffer read(final String key, final long offset, final int length) throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            final PackedLocation location = this.index.get(key);
+            if (location == null) {
+                throw new NoSuchFileException(this.directory.resolve(key).toString());
+            }
+            final int available = (int) Math.max(0L, Math.min(length, location.length() - offset));
+            try {
+                return location.segment().read(location.offset() + Math.min(offset, location.length()), available);
+            } catch (final ClosedByInterruptException e) {
+                throw e;
+            } catch (final ClosedChannelException e) {
+                // the segment was compacted away under the read, the key now lives elsewhere
+                if (attempt >= MAX_READ_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private void compactQuietly() {
+        try {
+            compact();
+        } catch (final IOException | RuntimeException e) {
+            logger.warn("Cannot compact {}", this.directory, e);
+        }
+    }
+
+    /**
+     * Copies the live records of every segment but the active one over to the active one, and deletes them, once
+     * enough of their content has been overwritten.
+     */
+    void compact() throws IOException {
+        if (!this.compacting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            final long activeId = this.active.id();
+            final List<PackedSegment> older = new ArrayList<>(this.segments.headMap(activeId).values());
+            long size = 0L;
+            long live = 0L;
+            for (final PackedSegment segment : older) {
+                size += segment.size();
+                live += segment.liveBytes();
+            }
+            if (older.isEmpty() || (live >= (size * COMPACTION_LIVE_RATIO))) {
+                return;
+            }
+            logger.debug("Compacting {} segments of {}, {} of {} bytes live", older.size(), this.directory, live,
+                    size);
+            for (final Map.Entry<String, PackedLocation> entry : this.index.entrySet()) {
+                final PackedLocation location = entry.getValue();
+                if (location.segment().id() < activeId) {
+                    final ByteBuffer value = location.segment().read(location.offset(), location.length());
+                    synchronized (this.writeLock) {
+                        // skipped if the key was written or removed in the meantime
+                        if (this.index.get(entry.getKey()) == location) {
+                            update(entry.getKey(), appendLocked(entry.getKey(), location.timestamp(), value));
+                        }
+                    }
+                }
+            }
+            // the copies have to be durable before the originals go away
+            synchronized (this.writeLock) {
+                this.active.force();
+            }
+            // removals recorded in these segments are dropped along with them, no older value is left to hide
+            for (final PackedSegment segment : older) {
+                this.segments.remove(segment.id());
+                segment.delete();
+            }
+        } finally {
+            this.compacting.set(false);
+        }
+    }
+
+    @Override
+    public Maybe<DataSource> get(final String key) {
+        return Maybe.fromCallable(() -> contains(key)
+                ? new PackedValue(this.failsafe, this, key, this.charset, this.scheduler) : null);
+    }
+
+    @Override
+    public Single<DataSource> fetch(final String key) {
+        return Single.fromCallable(() -> new PackedValue(this.failsafe, this, key, this.charset, this.scheduler));
+    }
+
+    @Override
+    public Flowable<String> keys() {
+        return Flowable.defer(() -> Flowable.fromIterable(this.index.keySet()));
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.compaction.dispose();
+        synchronized (this.writeLock) {
+            IOException failure = null;
+            if (this.active != null) {
+                try {
+                    this.active.force();
+                } catch (final IOException e) {
+                    failure = e;
+                }
+            }
+            for (final PackedSegment segment : this.segments.values()) {
+                try {
+                    segment.close();
+                } catch (final IOException e) {
+                    failure = e;
+                }
+            }
+            if (this.lock != null) {
+                try {
+                    // closing the channel releases the lock
+                    this.lock.channel().close();
+                } catch (final IOException e) {
+                    failure = e;
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PackedRegistry{" +
+                "failsafe=" + this.failsafe +
+                ", directory=" + this.directory +
+                ", segmentSize=" + this.segmentSize +
+                ", charset=" + this.charset +
+                ", scheduler=" + this.scheduler +
+                ", keys=" + this.index.size() +
+                ", segments=" + this.segments.size() +
+                ", active=" + this.active +
+                "}";
+    }
+}
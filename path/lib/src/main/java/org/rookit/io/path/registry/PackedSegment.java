@@ -0,0 +1,214 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.path.registry;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An append-only file of records of a packed registry, read with positional reads.
+ *
+ * An interrupt during any access closes the channel for every thread sharing it, so a channel closed that way is
+ * reopened: the interrupted access still fails, while the others carry on over the new channel.
+ */
+final class PackedSegment implements Closeable {
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(PackedSegment.class);
+
+    static final String SUFFIX = ".segment";
+
+    private final long id;
+    private final Path file;
+    private final AtomicLong liveBytes;
+    private volatile FileChannel channel;
+    private volatile long size;
+    /**
+     * Whether an interrupted append may have left part of a record past the size. Guarded by the append lock.
+     */
+    private boolean torn;
+    private boolean closed;
+
+    private PackedSegment(final long id, final Path file, final FileChannel channel) throws IOException {
+        this.id = id;
+        this.file = file;
+        this.channel = channel;
+        this.liveBytes = new AtomicLong();
+        this.size = channel.size();
+    }
+
+    static PackedSegment open(final Path directory, final long id) throws IOException {
+        final Path file = directory.resolve(String.format("%016d%s", id, SUFFIX));
+        return new PackedSegment(id, file, FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE));
+    }
+
+    static long idOf(final Path file) {
+        final String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+    }
+
+    long id() {
+        return this.id;
+    }
+
+    long size() {
+        return this.size;
+    }
+
+    FileChannel channel() {
+        return this.channel;
+    }
+
+    long liveBytes() {
+        return this.liveBytes.get();
+    }
+
+    void addLiveBytes(final long delta) {
+        this.liveBytes.addAndGet(delta);
+    }
+
+    /**
+     * Replaces the channel if an interrupt closed it, or tells that the segment itself was closed.
+     */
+    private synchronized boolean reopen(final FileChannel failed) throws IOException {
+        if (this.closed) {
+            return false;
+        }
+        if ((this.channel == failed) && !failed.isOpen()) {
+            logger.debug("Reopening {} after an interrupted access", this.file);
+            this.channel = FileChannel.open(this.file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        return true;
+    }
+
+    /**
+     * Reads exactly {@code length} bytes, failing with a {@link ClosedChannelException} if the segment is closed.
+     */
+    ByteBuffer read(final long position, final int length) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            final FileChannel current = this.channel;
+            try {
+                if (current.read(buffer, position + buffer.position()) < 0) {
+                    throw new IOException("Unexpected end of " + this.file + " at "
+                            + (position + buffer.position()));
+                }
+            } catch (final ClosedChannelException e) {
+                if (!reopen(current) || (e instanceof ClosedByInterruptException)) {
+                    throw e;
+                }
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Appends the buffers, returning the position they were written at. Callers serialize their appends.
+     */
+    long append(final ByteBuffer... buffers) throws IOException {
+        final long position = this.size;
+        final int[] starts = new int[buffers.length];
+        for (int index = 0; index < buffers.length; index++) {
+            starts[index] = buffers[index].position();
+        }
+        while (true) {
+            final FileChannel current = this.channel;
+            try {
+                if (this.torn) {
+                    current.truncate(position);
+                    this.torn = false;
+                }
+                long remaining = 0L;
+                for (int index = 0; index < buffers.length; index++) {
+                    buffers[index].position(starts[index]);
+                    remaining += buffers[index].remaining();
+                }
+                current.position(position);
+                while (remaining > 0L) {
+                    remaining -= current.write(buffers);
+                }
+                this.size = current.position();
+                return position;
+            } catch (final ClosedChannelException e) {
+                // part of the record may be in the file, it is dropped by the next append
+                this.torn = true;
+                if (!reopen(current) || (e instanceof ClosedByInterruptException)) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops a torn record left at the end of the segment by a crash.
+     */
+    void truncate(final long size) throws IOException {
+        this.channel.truncate(size);
+        this.size = size;
+    }
+
+    void force() throws IOException {
+        final FileChannel current = this.channel;
+        try {
+            current.force(false);
+        } catch (final ClosedByInterruptException e) {
+            reopen(current);
+            throw e;
+        }
+    }
+
+    void delete() throws IOException {
+        close();
+        Files.deleteIfExists(this.file);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        this.closed = true;
+        this.channel.close();
+    }
+
+    @Override
+    public String toString() {
+        return "PackedSegment{" +
+                "id=" + this.id +
+                ", file=" + this.file +
+                ", liveBytes=" + this.liveBytes +
+                ", size=" + this.size +
+                "}";
+    }
+}
@@ -0,0 +1,243 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.path.registry;
+
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
+import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Function;
+import org.rookit.failsafe.Failsafe;
+import org.rookit.io.data.DataBucket;
+import org.rookit.io.data.DataMetadata;
+import org.rookit.io.data.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+
+/**
+ * The value of a key of a packed registry. Reads always see the current value of the key, and writes are
+ * buffered in memory until complete, then appended as a single record.
+ */
+final class PackedValue implements DataBucket {
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(PackedValue.class);
+
+    private final Failsafe failsafe;
+    private final PackedRegistry registry;
+    private final String key;
+    private final Charset charset;
+    private final Scheduler scheduler;
+
+    PackedValue(final Failsafe failsafe,
+                final PackedRegistry registry,
+                final String key,
+                final Charset charset,
+                final Scheduler scheduler) {
+        this.failsafe = failsafe;
+        this.registry = registry;
+        this.key = key;
+        this.charset = charset;
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public Scheduler scheduler() {
+        return this.scheduler;
+    }
+
+    private ByteBuffer read() throws IOException {
+        return this.registry.read(this.key, 0L, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public DataMetadata metadata() {
+        return this.registry.metadata(this.key);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        final DataMetadata metadata = metadata();
+        return !metadata.exists() || (metadata.size().orElse(0L) == 0L);
+    }
+
+    @Override
+    public InputStream readFrom() throws IOException {
+        final ByteBuffer value = read();
+        return new ByteArrayInputStream(value.array(), value.arrayOffset() + value.position(), value.remaining());
+    }
+
+    @Override
+    public <T> Single<T> readFromWithBuffer(final Function<ByteBuffer, T> function) {
+        return Single.fromCallable(() -> function.apply(read())).subscribeOn(scheduler());
+    }
+
+    @Override
+    public <T> Single<T> readRange(final long offset, final int length, final Function<ByteBuffer, T> function) {
+        this.failsafe.checkArgument().isNotNegative(logger, offset, "offset");
+        this.failsafe.checkArgument().isNotNegative(logger, length, "length");
+        return Single.fromCallable(() -> function.apply(this.registry.read(this.key, offset, length)))
+                .subscribeOn(scheduler());
+    }
+
+    @Override
+    public <T> Single<T> readFromWithReader(final Function<Reader, T> function) {
+        return readFrom(inputStream -> {
+            return function.apply(new InputStreamReader(inputStream, this.charset));
+        });
+    }
+
+    @Override
+    public Completable readFromWithReader(final Consumer<Reader> consumer) {
+        return readFrom(inputStream -> {
+            consumer.accept(new InputStreamReader(inputStream, this.charset));
+        });
+    }
+
+    @Override
+    public void clear() throws IOException {
+        this.registry.remove(this.key);
+    }
+
+    @Override
+    public OutputStream writeTo() {
+        return new ByteArrayOutputStream() {
+            private boolean closed;
+
+            @Override
+            public void close() throws IOException {
+                if (!this.closed) {
+                    this.closed = true;
+                    PackedValue.this.registry.put(PackedValue.this.key, ByteBuffer.wrap(this.buf, 0, this.count));
+                }
+            }
+        };
+    }
+
+    @Override
+    public Completable writeTo(final Consumer<OutputStream> consumer) {
+        return writeTo(outputStream -> {
+            consumer.accept(outputStream);
+            return Boolean.TRUE;
+        }).ignoreElement();
+    }
+
+    @Override
+    public <T> Single<T> writeTo(final Function<OutputStream, T> function) {
+        return Single.defer(() -> {
+            // a failed writer leaves nothing behind, the buffer is only published once it is complete
+            final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            final T result = function.apply(buffer);
+            this.registry.put(this.key, ByteBuffer.wrap(buffer.toByteArray()));
+            return Single.just(result);
+        }).subscribeOn(scheduler());
+    }
+
+    @Override
+    public Completable writeToWithWriter(final Consumer<Writer> consumer) {
+        return writeTo(outputStream -> {
+            try (final Writer writer = new OutputStreamWriter(outputStream, this.charset)) {
+                consumer.accept(writer);
+            }
+        });
+    }
+
+    @Override
+    public <T> Single<T> writeToWithWriter(final Function<Writer, T> function) {
+        return writeTo(outputStream -> {
+            try (final Writer writer = new OutputStreamWriter(outputStream, this.charset)) {
+                return function.apply(writer);
+            }
+        });
+    }
+
+    @Override
+    public Completable writeToWithChannel(final Consumer<WritableByteChannel> consumer) {
+        return writeTo(outputStream -> {
+            consumer.accept(Channels.newChannel(outputStream));
+        });
+    }
+
+    @Override
+    public <T> Single<T> writeToWithChannel(final Function<WritableByteChannel, T> function) {
+        return writeTo(outputStream -> {
+            return function.apply(Channels.newChannel(outputStream));
+        });
+    }
+
+    @Override
+    public Completable write(final Flowable<ByteBuffer> buffers) {
+        return Completable.defer(() -> {
+            final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            final WritableByteChannel channel = Channels.newChannel(buffer);
+            return buffers.doOnNext(next -> {
+                while (next.hasRemaining()) {
+                    channel.write(next);
+                }
+            }).ignoreElements()
+                    .andThen(Completable.fromAction(() -> this.registry.put(this.key,
+                            ByteBuffer.wrap(buffer.toByteArray()))));
+        }).subscribeOn(scheduler());
+    }
+
+    @Override
+    public Completable writeToWithBuffers(final ByteBuffer... buffers) {
+        return Completable.fromAction(() -> this.registry.put(this.key, buffers))
+                .subscribeOn(scheduler());
+    }
+
+    @Override
+    public Completable copyFrom(final DataSource dataBucket) {
+        return dataBucket.readFromWithBuffer(buffer -> {
+            this.registry.put(this.key, buffer);
+            return buffer.remaining();
+        }).ignoreElement();
+    }
+
+    @Override
+    public String toString() {
+        return "PackedValue{" +
+                "failsafe=" + this.failsafe +
+                ", registry=" + this.registry +
+                ", key=" + this.key +
+                ", charset=" + this.charset +
+                ", scheduler=" + this.scheduler +
+                "}";
+    }
+}
@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.path.registry;
+
+import org.rookit.utils.object.DynamicObject;
+
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+
+/**
+ * An object parsed from a file, along with the size and modification time the file had when it was parsed.
+ */
+final class ParsedObject {
+
+    private final long size;
+    private final FileTime lastModified;
+    private final DynamicObject object;
+
+    ParsedObject(final BasicFileAttributes attributes, final DynamicObject object) {
+        this.size = attributes.size();
+        this.lastModified = attributes.lastModifiedTime();
+        this.object = object;
+    }
+
+    boolean matches(final BasicFileAttributes attributes) {
+        return (attributes.size() == this.size) && attributes.lastModifiedTime().equals(this.lastModified);
+    }
+
+    DynamicObject object() {
+        return this.object;
+    }
+
+    int weight() {
+        return (int) Math.min(Integer.MAX_VALUE, this.size + 1L);
+    }
+
+    @Override
+    public String toString() {
+        return "ParsedObject{" +
+                "size=" + this.size +
+                ", lastModified=" + this.lastModified +
+                ", object=" + this.object +
+                "}";
+    }
+}
@@ -0,0 +1,193 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.path.registry;
+
+import com.google.common.cache.Cache;
+import io.reactivex.Maybe;
+import io.reactivex.Single;
+import org.rookit.io.data.DataSource;
+import org.rookit.io.object.DataBucketDynamicObjectFactory;
+import org.rookit.utils.object.DynamicObject;
+import org.rookit.utils.registry.Registry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Parses the files of a directory registry, reusing the objects parsed before for as long as their file keeps
+ * the same size and modification time. When watching, the file is not even checked until the watch service
+ * reports a change to it.
+ */
+final class ParsedObjectRegistry implements Registry<String, DynamicObject>, DirectoryWatcher.Listener {
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(ParsedObjectRegistry.class);
+
+    private final Path directory;
+    private final Registry<String, DataSource> files;
+    private final DataBucketDynamicObjectFactory objectFactory;
+    private final Cache<Path, ParsedObject> cache;
+    private final DirectoryWatchService watchService;
+    /**
+     * Bumped on every invalidation, so that an object parsed while its file changed is not cached as current.
+     */
+    private final AtomicLong generation;
+    private volatile boolean watch;
+    private DirectoryWatcher watcher;
+
+    ParsedObjectRegistry(final Path directory,
+                         final Registry<String, DataSource> files,
+                         final DataBucketDynamicObjectFactory objectFactory,
+                         final Cache<Path, ParsedObject> cache,
+                         final boolean watch,
+                         final DirectoryWatchService watchService) {
+        this.directory = directory;
+        this.files = files;
+        this.objectFactory = objectFactory;
+        this.cache = cache;
+        this.watchService = watchService;
+        this.generation = new AtomicLong();
+        this.watch = watch;
+    }
+
+    private boolean isWatched(final Path path) {
+        if (!this.watch || !this.directory.equals(path.getParent())) {
+            return false;
+        }
+        synchronized (this) {
+            if (this.watch && (this.watcher == null)) {
+                try {
+                    this.watcher = this.watchService.watch(this.directory, this,
+                            StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_DELETE,
+                            StandardWatchEventKinds.ENTRY_MODIFY);
+                    // anything cached before the watch started may be stale
+                    invalidateDirectory();
+                    this.watcher.start();
+                } catch (final IOException | UnsupportedOperationException e) {
+                    logger.info("Cannot watch {}, validating every lookup instead", this.directory, e);
+                    this.watch = false;
+                }
+            }
+            return this.watch;
+        }
+    }
+
+    private void invalidateDirectory() {
+        this.generation.incrementAndGet();
+        this.cache.asMap().keySet().removeIf(path -> this.directory.equals(path.getParent()));
+    }
+
+    @Override
+    public void changed(final WatchEvent.Kind<?> kind, final String name) {
+        this.generation.incrementAndGet();
+        this.cache.invalidate(this.directory.resolve(name));
+    }
+
+    @Override
+    public void overflowed() {
+        invalidateDirectory();
+    }
+
+    @Override
+    public void stopped() {
+        this.watch = false;
+        invalidateDirectory();
+    }
+
+    private Single<DynamicObject> parse(final Path path, final DataSource source) {
+        return Single.defer(() -> {
+            final long current = this.generation.get();
+            final BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            final ParsedObject cached = this.cache.getIfPresent(path);
+            if ((cached != null) && cached.matches(attributes)) {
+                return Single.just(cached.object());
+            }
+            return this.objectFactory.fromDataSource(source)
+                    .doOnSuccess(object -> {
+                        if (current == this.generation.get()) {
+                            this.cache.put(path, new ParsedObject(attributes, object));
+                        }
+                    });
+        });
+    }
+
+    @Override
+    public Maybe<DynamicObject> get(final String key) {
+        return Maybe.defer(() -> {
+            final Path path = this.directory.resolve(key);
+            if (isWatched(path)) {
+                final ParsedObject cached = this.cache.getIfPresent(path);
+                if (cached != null) {
+                    return Maybe.just(cached.object());
+                }
+            }
+            return this.files.get(key).flatMapSingleElement(source -> parse(path, source));
+        });
+    }
+
+    @Override
+    public Single<DynamicObject> fetch(final String key) {
+        return Single.defer(() -> {
+            final Path path = this.directory.resolve(key);
+            if (isWatched(path)) {
+                final ParsedObject cached = this.cache.getIfPresent(path);
+                if (cached != null) {
+                    return Single.just(cached.object());
+                }
+            }
+            return this.files.fetch(key).flatMap(source -> parse(path, source));
+        });
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            this.watch = false;
+            if (this.watcher != null) {
+                this.watcher.close();
+            }
+        }
+        invalidateDirectory();
+        this.files.close();
+    }
+
+    @Override
+    public String toString() {
+        return "ParsedObjectRegistry{" +
+                "directory=" + this.directory +
+                ", files=" + this.files +
+                ", objectFactory=" + this.objectFactory +
+                ", generation=" + this.generation +
+                ", watch=" + this.watch +
+                "}";
+    }
+}
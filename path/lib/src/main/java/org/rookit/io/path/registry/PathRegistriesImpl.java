@@ -21,55 +21,156 @@
  ******************************************************************************/
 package org.rookit.io.path.registry;
 
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
+import io.reactivex.schedulers.Schedulers;
+import org.rookit.failsafe.Failsafe;
 import org.rookit.io.data.DataBucketFactory;
-import org.rookit.io.data.DataSource;
+import org.rookit.io.data.IOScheduler;
 import org.rookit.io.object.DataBucketDynamicObjectFactory;
+import org.rookit.io.path.PathConfig;
+import org.rookit.io.path.archive.ArchiveIndexService;
 import org.rookit.utils.object.DynamicObject;
 import org.rookit.utils.registry.BaseRegistries;
 import org.rookit.utils.registry.Registry;
 
+import java.io.IOException;
 import java.net.URI;
+import java.nio.charset.Charset;
 import java.nio.file.FileSystem;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 final class PathRegistriesImpl implements PathRegistries {
 
+    private static final String JAR_SCHEME = "jar";
+    private static final String FILE_SCHEME = "file";
+
+    private final Failsafe failsafe;
     private final DataBucketFactory<Path> bucketFactory;
     private final DataBucketDynamicObjectFactory dynamicObjectFactory;
     private final BaseRegistries registries;
+    private final PathConfig config;
+    private final ArchiveIndexService archiveIndexService;
+    private final Scheduler scheduler;
+    private final DirectoryWatchService watchService;
+    /**
+     * Runs the flushes of write-behind registries, which writers may block on, apart from the IO scheduler.
+     */
+    private final Supplier<Scheduler> flushScheduler;
+    private final Cache<Path, ParsedObject> parsedObjects;
+    private final Charset charset;
 
     @Inject
-    private PathRegistriesImpl(final DataBucketFactory<Path> bucketFactory,
+    private PathRegistriesImpl(final Failsafe failsafe,
+                               final DataBucketFactory<Path> bucketFactory,
                                final DataBucketDynamicObjectFactory dynamicObjectFactory,
-                               final BaseRegistries registries) {
+                               final BaseRegistries registries,
+                               final PathConfig config,
+                               final ArchiveIndexService archiveIndexService,
+                               @IOScheduler final Scheduler scheduler,
+                               final Charset charset) {
+        this.failsafe = failsafe;
         this.bucketFactory = bucketFactory;
         this.dynamicObjectFactory = dynamicObjectFactory;
         this.registries = registries;
+        this.config = config;
+        this.archiveIndexService = archiveIndexService;
+        this.scheduler = scheduler;
+        this.watchService = new DirectoryWatchService();
+        this.flushScheduler = Suppliers.memoize(PathRegistriesImpl::flushScheduler);
+        this.parsedObjects = CacheBuilder.newBuilder()
+                .maximumWeight(Math.max(0L, config.parsedObjectCacheWeight()))
+                .<Path, ParsedObject>weigher((path, object) -> object.weight())
+                .build();
+        this.charset = charset;
+    }
+
+    private static Scheduler flushScheduler() {
+        final ThreadFactory threadFactory = new ThreadFactoryBuilder()
+                .setNameFormat("rookit-write-behind-%d")
+                .setDaemon(true)
+                .build();
+        return Schedulers.from(Executors.newSingleThreadExecutor(threadFactory));
+    }
+
+    @Override
+    public DirectoryRegistry directoryRegistry(final Path directory) {
+        return new PathRegistry(directory, this.bucketFactory, this.watchService);
+    }
+
+    @Override
+    public DirectoryRegistry shardedDirectoryRegistry(final Path directory, final ShardLayout layout) {
+        return new ShardedPathRegistry(directory, layout, this.bucketFactory);
     }
 
     @Override
-    public Registry<String, DataSource> directoryRegistry(final Path directory) {
-        return new PathRegistry(directory, this.bucketFactory);
+    public Single<Long> shardDirectory(final Path directory, final ShardLayout layout) {
+        return Single.fromCallable(new ShardMigration(directory, layout))
+                .subscribeOn(this.scheduler);
+    }
+
+    @Override
+    public DirectoryRegistry packedDirectoryRegistry(final Path directory) throws IOException {
+        return PackedRegistry.open(this.failsafe, directory, this.config.packedSegmentSize(),
+                this.config.packedCompactionInterval(), this.charset, this.scheduler);
+    }
+
+    @Override
+    public DirectoryRegistry writeBehindDirectoryRegistry(final Path directory, final Durability durability) {
+        return new WriteBehindRegistry(directory, directoryRegistry(directory), this.bucketFactory, durability,
+                this.config.writeBehindFlushInterval(), this.config.writeBehindMaxPendingBytes(), this.charset,
+                this.scheduler,
+                this.flushScheduler.get());
     }
 
     @Override
     public Registry<String, DynamicObject> serializedDirectoryRegistry(final Path directory) {
-        return this.registries.mapValueRegistry(directoryRegistry(directory),
-                this.dynamicObjectFactory::fromDataSource);
+        if (this.config.parsedObjectCacheWeight() <= 0L) {
+            return this.registries.mapValueRegistry(directoryRegistry(directory),
+                    this.dynamicObjectFactory::fromDataSource);
+        }
+        return new ParsedObjectRegistry(directory, directoryRegistry(directory), this.dynamicObjectFactory,
+                this.parsedObjects, this.config.parsedObjectCacheWatch(), this.watchService);
     }
 
     @Override
-    public Registry<URI, FileSystem> uriFileSystemRegistry() {
-        return new FileSystemRegistry();
+    public RefCountedRegistry<URI, FileSystem> uriFileSystemRegistry() {
+        return new FileSystemRegistry(this.config.fileSystemIdleTimeout(), this.scheduler,
+                this::fileSystemClosed);
+    }
+
+    private void fileSystemClosed(final URI root) {
+        if (JAR_SCHEME.equalsIgnoreCase(root.getScheme())) {
+            final URI archive = URI.create(root.getRawSchemeSpecificPart());
+            if (FILE_SCHEME.equalsIgnoreCase(archive.getScheme())) {
+                // whatever was written through the file system is now in the archive file
+                this.archiveIndexService.closed(Paths.get(archive));
+            }
+        }
     }
 
     @Override
     public String toString() {
         return "PathRegistriesImpl{" +
-                "bucketFactory=" + this.bucketFactory +
+                "failsafe=" + this.failsafe +
+                ", bucketFactory=" + this.bucketFactory +
                 ", dynamicObjectFactory=" + this.dynamicObjectFactory +
                 ", registries=" + this.registries +
+                ", config=" + this.config +
+                ", archiveIndexService=" + this.archiveIndexService +
+                ", scheduler=" + this.scheduler +
+                ", watchService=" + this.watchService +
+                ", parsedObjects=" + this.parsedObjects +
+                ", charset=" + this.charset +
                 "}";
     }
 }
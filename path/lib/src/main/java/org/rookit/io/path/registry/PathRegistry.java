@@ -21,41 +21,198 @@
  ******************************************************************************/
 package org.rookit.io.path.registry;
 
+import io.reactivex.Flowable;
 import io.reactivex.Maybe;
 import io.reactivex.Single;
 import org.rookit.io.data.DataBucketFactory;
 import org.rookit.io.data.DataSource;
-import org.rookit.utils.registry.Registry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
-final class PathRegistry implements Registry<String, DataSource> {
+/**
+ * Answers lookups of the files directly under the directory from an index kept current by a watch service, so
+ * that misses cost no file system access. Nested keys, and directories that cannot be watched, are looked up on
+ * the file system.
+ */
+final class PathRegistry implements DirectoryRegistry {
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(PathRegistry.class);
+
+    /**
+     * How long a fetched name that does not exist is checked on the file system, which covers the delay of the
+     * watch events of polling watch services. A later creation is left to the watch events.
+     */
+    private static final long VERIFICATION_GRACE_NANOS = TimeUnit.SECONDS.toNanos(10L);
+    private static final int MAX_UNVERIFIED = 1024;
 
     private final Path directory;
     private final DataBucketFactory<Path> bucketFactory;
+    private final DirectoryWatchService watchService;
+    /**
+     * Names handed out by {@link #fetch(String)}, which may be created or deleted through the fetched bucket
+     * before the index is told about it, and are thus checked on the file system until their next watch event.
+     * Each is mapped to the time it was fetched at.
+     */
+    private final ConcurrentMap<String, Long> unverified;
+    private volatile long nextSweep;
+    private volatile DirectoryIndex index;
+    private volatile boolean watchable;
+    private volatile boolean closed;
 
-    PathRegistry(final Path directory, final DataBucketFactory<Path> bucketFactory) {
+    PathRegistry(final Path directory, final DataBucketFactory<Path> bucketFactory,
+                 final DirectoryWatchService watchService) {
         this.directory = directory;
         this.bucketFactory = bucketFactory;
+        this.watchService = watchService;
+        this.unverified = new ConcurrentHashMap<>();
+        this.nextSweep = System.nanoTime();
+        this.watchable = true;
+    }
+
+    private DirectoryIndex index() {
+        final DirectoryIndex current = this.index;
+        if (((current != null) && current.isValid()) || !this.watchable) {
+            return current;
+        }
+        synchronized (this) {
+            if (this.closed || !this.watchable) {
+                return null;
+            }
+            if ((this.index != null) && !this.index.isValid()) {
+                closeIndex();
+            }
+            if (this.index == null) {
+                try {
+                    this.index = DirectoryIndex.create(this.directory, this.watchService,
+                            this.unverified::remove);
+                } catch (final UnsupportedOperationException e) {
+                    logger.debug("{} cannot be watched, looking up every key", this.directory);
+                    this.watchable = false;
+                } catch (final IOException e) {
+                    // most likely a directory that does not exist (yet)
+                    logger.debug("Cannot index {}", this.directory, e);
+                }
+            }
+            return this.index;
+        }
+    }
+
+    private void closeIndex() {
+        this.index.close();
+        this.index = null;
+    }
+
+    private Path resolve(final String key) {
+        return this.directory.resolve(key);
+    }
+
+    private boolean isIndexed(final Path path) {
+        return this.directory.equals(path.getParent());
+    }
+
+    private boolean exists(final Path path) {
+        final DirectoryIndex current = isIndexed(path) ? index() : null;
+        if (current == null) {
+            return Files.exists(path);
+        }
+        final String name = path.getFileName().toString();
+        if (current.contains(name)) {
+            return true;
+        }
+        final Long fetched = this.unverified.get(name);
+        return (fetched != null) && verify(current, name, fetched);
+    }
+
+    private boolean verify(final DirectoryIndex current, final String name, final long fetched) {
+        if (Files.exists(resolve(name))) {
+            current.add(name);
+            this.unverified.remove(name, fetched);
+            return true;
+        }
+        if ((System.nanoTime() - fetched) > VERIFICATION_GRACE_NANOS) {
+            this.unverified.remove(name, fetched);
+        }
+        return false;
+    }
+
+    /**
+     * Checks every fetched name once the names grow past their bound, at most once per grace period, so that
+     * names fetched but never created do not pile up.
+     */
+    private void sweep(final DirectoryIndex current) {
+        final long now = System.nanoTime();
+        if ((this.unverified.size() > MAX_UNVERIFIED) && ((now - this.nextSweep) >= 0L)) {
+            this.nextSweep = now + VERIFICATION_GRACE_NANOS;
+            for (final Map.Entry<String, Long> entry : this.unverified.entrySet()) {
+                verify(current, entry.getKey(), entry.getValue());
+            }
+        }
     }
 
     @Override
     public Maybe<DataSource> get(final String key) {
-        return Maybe.just(this.directory.resolve(key))
-                .filter(Files::exists)
-                .map(this.bucketFactory::create);
+        return Maybe.fromCallable(() -> {
+            final Path path = resolve(key);
+            return exists(path) ? path : null;
+        }).map(this.bucketFactory::create);
     }
 
     @Override
     public Single<DataSource> fetch(final String key) {
-        return Single.just(this.directory.resolve(key))
-                .map(this.bucketFactory::create);
+        return Single.fromCallable(() -> {
+            final Path path = resolve(key);
+            final DirectoryIndex current = isIndexed(path) ? this.index : null;
+            if (current != null) {
+                final String name = path.getFileName().toString();
+                this.unverified.put(name, System.nanoTime());
+                current.remove(name);
+                sweep(current);
+            }
+            return this.bucketFactory.create(path);
+        });
+    }
+
+    @Override
+    public Flowable<String> keys() {
+        return Flowable.defer(() -> {
+            final DirectoryIndex current = index();
+            if (current == null) {
+                return Flowable.using(() -> Files.newDirectoryStream(this.directory),
+                        stream -> Flowable.fromIterable(stream).map(path -> path.getFileName().toString()),
+                        DirectoryStream::close);
+            }
+            final Set<String> keys = new HashSet<>(current.names());
+            for (final Map.Entry<String, Long> entry : this.unverified.entrySet()) {
+                if (!keys.contains(entry.getKey()) && verify(current, entry.getKey(), entry.getValue())) {
+                    keys.add(entry.getKey());
+                }
+            }
+            return Flowable.fromIterable(keys);
+        });
     }
 
     @Override
     public void close() {
-        // nothing to be closed
+        synchronized (this) {
+            this.closed = true;
+            if (this.index != null) {
+                closeIndex();
+            }
+        }
     }
 
     @Override
@@ -63,6 +220,11 @@ final class PathRegistry implements Registry<String, DataSource> {
         return "PathRegistry{" +
                 "directory=" + this.directory +
                 ", bucketFactory=" + this.bucketFactory +
+                ", watchService=" + this.watchService +
+                ", unverified=" + this.unverified.size() +
+                ", index=" + this.index +
+                ", watchable=" + this.watchable +
+                ", closed=" + this.closed +
                 "}";
     }
 }
@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.path.registry;
+
+import io.reactivex.Completable;
+import io.reactivex.subjects.CompletableSubject;
+
+/**
+ * A write of a write-behind registry waiting to be flushed, either new content or the removal of the key.
+ */
+final class PendingWrite {
+
+    private final byte[] content;
+    private final long timestamp;
+    private final CompletableSubject flushed;
+    private int attempts;
+
+    @SuppressWarnings("AssignmentOrReturnOfFieldWithMutableType")
+    PendingWrite(final byte[] content, final long timestamp) {
+        this.content = content;
+        this.timestamp = timestamp;
+        this.flushed = CompletableSubject.create();
+    }
+
+    boolean isRemoval() {
+        return this.content == null;
+    }
+
+    @SuppressWarnings("AssignmentOrReturnOfFieldWithMutableType")
+    byte[] content() {
+        return this.content;
+    }
+
+    long length() {
+        return (this.content == null) ? 0L : this.content.length;
+    }
+
+    long timestamp() {
+        return this.timestamp;
+    }
+
+    /**
+     * Counts a failed attempt to flush the write, which only the flushing thread makes.
+     *
+     * @return the failed attempts so far
+     */
+    int failedAttempt() {
+        this.attempts++;
+        return this.attempts;
+    }
+
+    /**
+     * Takes the place of a write of the same key that was not flushed yet, which then completes along with this
+     * one.
+     */
+    PendingWrite supersede(final PendingWrite previous) {
+        this.flushed.subscribe(previous::complete, previous::fail);
+        return this;
+    }
+
+    Completable flushed() {
+        return this.flushed.hide();
+    }
+
+    private boolean isTerminated() {
+        return this.flushed.hasComplete() || this.flushed.hasThrowable();
+    }
+
+    /**
+     * Completes the write, unless it was already flushed before being superseded.
+     */
+    void complete() {
+        if (!isTerminated()) {
+            this.flushed.onComplete();
+        }
+    }
+
+    void fail(final Throwable error) {
+        if (!isTerminated()) {
+            this.flushed.onError(error);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PendingWrite{" +
+                "length=" + ((this.content == null) ? -1 : this.content.length) +
+                ", timestamp=" + this.timestamp +
+                ", attempts=" + this.attempts +
+                "}";
+    }
+}
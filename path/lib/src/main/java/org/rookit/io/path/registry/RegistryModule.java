@@ -47,7 +47,13 @@ public final class RegistryModule extends AbstractModule {
 
     @Provides
     @Singleton
-    Registry<URI, FileSystem> fileSystemRegistry(final PathRegistries registries) {
+    RefCountedRegistry<URI, FileSystem> refCountedFileSystemRegistry(final PathRegistries registries) {
         return registries.uriFileSystemRegistry();
     }
+
+    @Provides
+    @Singleton
+    Registry<URI, FileSystem> fileSystemRegistry(final RefCountedRegistry<URI, FileSystem> registry) {
+        return registry;
+    }
 }
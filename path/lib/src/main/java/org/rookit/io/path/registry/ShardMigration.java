@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.path.registry;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Callable;
+
+/**
+ * Moves the entries of a flat directory into their shard directories, with one rename each.
+ */
+final class ShardMigration implements Callable<Long> {
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(ShardMigration.class);
+
+    private static final long PROGRESS_INTERVAL = 100_000L;
+
+    private final Path directory;
+    private final ShardLayout layout;
+
+    ShardMigration(final Path directory, final ShardLayout layout) {
+        this.directory = directory;
+        this.layout = layout;
+    }
+
+    @Override
+    public Long call() throws IOException {
+        long moved = 0L;
+        // shard directories are skipped, which also makes an interrupted migration resumable
+        try (final DirectoryStream<Path> entries = Files.newDirectoryStream(this.directory, entry ->
+                !(Files.isDirectory(entry)
+                        && ShardedPathRegistry.isShardName(entry.getFileName().toString(), this.layout)))) {
+            for (final Path entry : entries) {
+                final String key = entry.getFileName().toString();
+                final Path shard = ShardedPathRegistry.shardOf(this.directory, this.layout, key);
+                final Path target = shard.resolve(key);
+                // an atomic rename may silently replace the target, hence the explicit check
+                if (Files.exists(target)) {
+                    logger.warn("{} is already sharded, leaving the flat copy in place", key);
+                    continue;
+                }
+                Files.createDirectories(shard);
+                Files.move(entry, target, StandardCopyOption.ATOMIC_MOVE);
+                moved++;
+                if ((moved % PROGRESS_INTERVAL) == 0L) {
+                    logger.info("Moved {} entries of {} into shards", moved, this.directory);
+                }
+            }
+        }
+        logger.info("Sharded {} entries of {}", moved, this.directory);
+        return moved;
+    }
+
+    @Override
+    public String toString() {
+        return "ShardMigration{" +
+                "directory=" + this.directory +
+                ", layout=" + this.layout +
+                "}";
+    }
+}
@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.path.registry;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import io.reactivex.Flowable;
+import io.reactivex.Maybe;
+import io.reactivex.Single;
+import org.rookit.io.data.DataBucketFactory;
+import org.rookit.io.data.DataSource;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * A directory registry whose files live in hash-prefix subdirectories, so that no single directory grows past
+ * what the file system handles well. Keys are sharded by their first name element, and buckets are plain path
+ * buckets of the sharded location.
+ */
+final class ShardedPathRegistry implements DirectoryRegistry {
+
+    private static final HashFunction HASH = Hashing.murmur3_128();
+
+    private final Path directory;
+    private final ShardLayout layout;
+    private final DataBucketFactory<Path> bucketFactory;
+    /**
+     * The shard directories known to exist, so that fetching only creates each of them once.
+     */
+    private final Set<Path> shards;
+
+    ShardedPathRegistry(final Path directory, final ShardLayout layout, final DataBucketFactory<Path> bucketFactory) {
+        this.directory = directory;
+        this.layout = layout;
+        this.bucketFactory = bucketFactory;
+        this.shards = ConcurrentHashMap.newKeySet();
+    }
+
+    static Path shardOf(final Path directory, final ShardLayout layout, final String key) {
+        final String hash = HASH.hashString(key, StandardCharsets.UTF_8).toString();
+        Path shard = directory;
+        for (int level = 0; level < layout.depth(); level++) {
+            shard = shard.resolve(hash.substring(level * layout.width(), (level + 1) * layout.width()));
+        }
+        return shard;
+    }
+
+    /**
+     * Whether the name is the one of a shard directory, as opposed to a key of a flat registry.
+     */
+    static boolean isShardName(final String name, final ShardLayout layout) {
+        if (name.length() != layout.width()) {
+            return false;
+        }
+        for (int index = 0; index < name.length(); index++) {
+            if ((Character.digit(name.charAt(index), 16) < 0) || Character.isUpperCase(name.charAt(index))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Path resolve(final String key) {
+        // nested keys share the shard of their top level entry, which is what gets moved when migrating
+        final Path relative = this.directory.getFileSystem().getPath(key);
+        return shardOf(this.directory, this.layout, relative.getName(0).toString()).resolve(relative);
+    }
+
+    @Override
+    public Maybe<DataSource> get(final String key) {
+        return Maybe.fromCallable(() -> {
+            final Path path = resolve(key);
+            return Files.exists(path) ? path : null;
+        }).map(this.bucketFactory::create);
+    }
+
+    @Override
+    public Single<DataSource> fetch(final String key) {
+        return Single.fromCallable(() -> {
+            final Path path = resolve(key);
+            final Path parent = path.getParent();
+            if (!this.shards.contains(parent)) {
+                Files.createDirectories(parent);
+                this.shards.add(parent);
+            }
+            return this.bucketFactory.create(path);
+        });
+    }
+
+    @Override
+    public Flowable<String> keys() {
+        return Flowable.defer(() -> {
+            if (!Files.isDirectory(this.directory)) {
+                return Flowable.empty();
+            }
+            return Flowable.using(() -> Files.walk(this.directory),
+                    paths -> Flowable.fromIterable(paths::iterator)
+                            .map(this.directory::relativize)
+                            .filter(path -> path.getNameCount() > this.layout.depth())
+                            .filter(path -> Files.isRegularFile(this.directory.resolve(path)))
+                            .map(path -> path.subpath(this.layout.depth(), path.getNameCount()).toString()),
+                    Stream::close);
+        });
+    }
+
+    @Override
+    public void close() {
+        // nothing to be closed
+    }
+
+    @Override
+    public String toString() {
+        return "ShardedPathRegistry{" +
+                "directory=" + this.directory +
+                ", layout=" + this.layout +
+                ", bucketFactory=" + this.bucketFactory +
+                ", shards=" + this.shards.size() +
+                "}";
+    }
+}
@@ -0,0 +1,375 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.path.registry;
+
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Maybe;
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.disposables.Disposables;
+import org.rookit.io.data.DataBucketFactory;
+import org.rookit.io.data.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A directory registry that queues writes in memory, keeping only the latest one per key, and flushes them in
+ * batches from a single worker of a dedicated scheduler, so that writers waiting on a flush never hold the thread
+ * it needs. Each file is written to a temporary file and renamed into place, and syncing
+ * (when the durability asks for it) happens once per batch, after which every parent directory is synced once.
+ * Once the queued writes grow past their bound, a flush starts early and the writers wait for it.
+ */
+final class WriteBehindRegistry implements DirectoryRegistry {
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindRegistry.class);
+
+    private static final String TEMPORARY_SUFFIX = ".wb";
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_DELAY_MILLIS = 100L;
+
+    private final Path directory;
+    private final DirectoryRegistry files;
+    private final DataBucketFactory<Path> bucketFactory;
+    private final Durability durability;
+    private final Charset charset;
+    private final Scheduler scheduler;
+    private final Scheduler flushScheduler;
+    private final ConcurrentMap<String, PendingWrite> pending;
+    private final long maxPendingBytes;
+    private final AtomicLong pendingBytes;
+    private final Scheduler.Worker worker;
+    private final AtomicBoolean flushRequested;
+    /**
+     * Serializes flushes, which run on the worker and, when closing, on the closing thread.
+     */
+    private final Object flushLock;
+    /**
+     * Held to queue writes, and exclusively to close, so that no write is queued after the last flush.
+     */
+    private final ReadWriteLock closeLock;
+    private final Disposable periodicFlush;
+    private final boolean flushOnWrite;
+    private volatile boolean closed;
+
+    WriteBehindRegistry(final Path directory,
+                        final DirectoryRegistry files,
+                        final DataBucketFactory<Path> bucketFactory,
+                        final Durability durability,
+                        final Duration flushInterval,
+                        final long maxPendingBytes,
+                        final Charset charset,
+                        final Scheduler scheduler,
+                        final Scheduler flushScheduler) {
+        this.directory = directory;
+        this.files = files;
+        this.bucketFactory = bucketFactory;
+        this.durability = durability;
+        this.charset = charset;
+        this.scheduler = scheduler;
+        this.flushScheduler = flushScheduler;
+        this.pending = new ConcurrentHashMap<>();
+        this.maxPendingBytes = maxPendingBytes;
+        this.pendingBytes = new AtomicLong();
+        this.worker = flushScheduler.createWorker();
+        this.flushRequested = new AtomicBoolean();
+        this.flushLock = new Object();
+        this.closeLock = new ReentrantReadWriteLock();
+        this.flushOnWrite = (durability == Durability.PER_WRITE) || flushInterval.isZero();
+        if (this.flushOnWrite) {
+            this.periodicFlush = Disposables.disposed();
+        } else {
+            final long period = flushInterval.toMillis();
+            this.periodicFlush = this.worker.schedulePeriodically(this::scheduledFlush, period, period,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static boolean isTemporary(final String name) {
+        return name.startsWith(".") && name.endsWith(TEMPORARY_SUFFIX);
+    }
+
+    Path resolve(final String key) {
+        return this.directory.resolve(key);
+    }
+
+    DataBucketFactory<Path> bucketFactory() {
+        return this.bucketFactory;
+    }
+
+    PendingWrite pending(final String key) {
+        return this.pending.get(key);
+    }
+
+    /**
+     * Queues new content for the key, or its removal if there is none. Completes once the write is as durable
+     * as the registry promises, which for anything but {@link Durability#PER_WRITE} is right away.
+     */
+    Completable enqueue(final String key, final byte[] content) {
+        return Completable.defer(() -> {
+            final PendingWrite write = new PendingWrite(content, System.currentTimeMillis());
+            final boolean full;
+            this.closeLock.readLock().lock();
+            try {
+                if (this.closed) {
+                    return Completable.error(new IOException("Registry of " + this.directory + " is closed"));
+                }
+                this.pending.merge(key, write, (previous, current) -> {
+                    this.pendingBytes.addAndGet(-previous.length());
+                    return current.supersede(previous);
+                });
+                full = this.pendingBytes.addAndGet(write.length()) > this.maxPendingBytes;
+                if ((this.flushOnWrite || full) && this.flushRequested.compareAndSet(false, true)) {
+                    this.worker.schedule(this::scheduledFlush);
+                }
+            } finally {
+                this.closeLock.readLock().unlock();
+            }
+            return ((this.durability == Durability.PER_WRITE) || full) ? write.flushed() : Completable.complete();
+        });
+    }
+
+    private void scheduledFlush() {
+        synchronized (this.flushLock) {
+            // the final flush belongs to close, which may also have interrupted this task
+            if (!this.closed) {
+                flush();
+            }
+        }
+    }
+
+    private void flush() {
+        synchronized (this.flushLock) {
+            // cleared first, so that writes queued from now on request another flush
+            this.flushRequested.set(false);
+            final List<Map.Entry<String, PendingWrite>> batch = new ArrayList<>(this.pending.entrySet());
+            if (batch.isEmpty()) {
+                return;
+            }
+            final boolean sync = this.durability != Durability.NONE;
+            final Map<String, Path> temporaries = new HashMap<>(batch.size());
+            final Set<Path> directories = new LinkedHashSet<>();
+            final List<Map.Entry<String, PendingWrite>> done = new ArrayList<>(batch.size());
+            boolean retry = false;
+            for (final Map.Entry<String, PendingWrite> entry : batch) {
+                try {
+                    if (!entry.getValue().isRemoval()) {
+                        temporaries.put(entry.getKey(), writeTemporary(resolve(entry.getKey()),
+                                entry.getValue().content(), sync));
+                    }
+                    done.add(entry);
+                } catch (final IOException | RuntimeException e) {
+                    retry |= failed(entry, e);
+                }
+            }
+            // the content is durable before any of it becomes visible under its name
+            final List<Map.Entry<String, PendingWrite>> renamed = new ArrayList<>(done.size());
+            for (final Map.Entry<String, PendingWrite> entry : done) {
+                final Path path = resolve(entry.getKey());
+                try {
+                    // the file registry may answer from an index its watch events have yet to catch up with, so it
+                    // is told that the file changes under it before the queued write stops hiding the file
+                    this.files.fetch(entry.getKey()).blockingGet();
+                    if (entry.getValue().isRemoval()) {
+                        Files.deleteIfExists(path);
+                    } else {
+                        Files.move(temporaries.get(entry.getKey()), path, StandardCopyOption.REPLACE_EXISTING,
+                                StandardCopyOption.ATOMIC_MOVE);
+                    }
+                    directories.add(path.getParent());
+                    renamed.add(entry);
+                } catch (final IOException | RuntimeException e) {
+                    deleteTemporary(temporaries.get(entry.getKey()));
+                    retry |= failed(entry, e);
+                }
+            }
+            if (sync) {
+                for (final Path parent : directories) {
+                    syncDirectory(parent);
+                }
+            }
+            for (final Map.Entry<String, PendingWrite> entry : renamed) {
+                dequeue(entry.getKey(), entry.getValue());
+                entry.getValue().complete();
+            }
+            logger.trace("Flushed {} writes to {}", renamed.size(), this.directory);
+            if (retry && this.flushOnWrite && this.flushRequested.compareAndSet(false, true)) {
+                this.worker.schedule(this::scheduledFlush, RETRY_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Keeps a write that could not be flushed queued for the next flush, unless it already failed too often or
+     * the registry is closing, in which case it is dropped and its writers are told.
+     *
+     * @return whether the write is retried
+     */
+    private boolean failed(final Map.Entry<String, PendingWrite> entry, final Throwable error) {
+        if (!this.closed && (entry.getValue().failedAttempt() < MAX_ATTEMPTS)) {
+            logger.debug("Cannot flush {} to {}. Retrying.", entry.getKey(), this.directory, error);
+            return true;
+        }
+        logger.warn("Cannot flush {} to {}", entry.getKey(), this.directory, error);
+        dequeue(entry.getKey(), entry.getValue());
+        entry.getValue().fail(error);
+        return false;
+    }
+
+    private void dequeue(final String key, final PendingWrite write) {
+        if (this.pending.remove(key, write)) {
+            this.pendingBytes.addAndGet(-write.length());
+        }
+    }
+
+    private static void deleteTemporary(final Path temporary) {
+        if (temporary != null) {
+            try {
+                Files.deleteIfExists(temporary);
+            } catch (final IOException e) {
+                logger.warn("Cannot delete {}", temporary, e);
+            }
+        }
+    }
+
+    private static Path writeTemporary(final Path path, final byte[] content, final boolean sync) throws IOException {
+        final Path parent = path.getParent();
+        Files.createDirectories(parent);
+        final Path temporary = Files.createTempFile(parent, "." + path.getFileName(), TEMPORARY_SUFFIX);
+        try (final FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            final ByteBuffer buffer = ByteBuffer.wrap(content);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if (sync) {
+                channel.force(true);
+            }
+        } catch (final IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        return temporary;
+    }
+
+    private static void syncDirectory(final Path directory) {
+        try (final FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (final IOException e) {
+            // not every platform can sync a directory, the renames are then as durable as the platform makes them
+            logger.debug("Cannot sync {}", directory, e);
+        }
+    }
+
+    @Override
+    public Maybe<DataSource> get(final String key) {
+        return Maybe.defer(() -> {
+            final PendingWrite write = pending(key);
+            if (write != null) {
+                return write.isRemoval() ? Maybe.empty() : Maybe.just(value(key));
+            }
+            return this.files.get(key).map(file -> value(key));
+        });
+    }
+
+    @Override
+    public Single<DataSource> fetch(final String key) {
+        return Single.fromCallable(() -> value(key));
+    }
+
+    private DataSource value(final String key) {
+        return new WriteBehindValue(this, key, this.charset, this.scheduler);
+    }
+
+    @Override
+    public Flowable<String> keys() {
+        return Flowable.defer(() -> {
+            final Map<String, PendingWrite> queued = new HashMap<>(this.pending);
+            return Flowable.fromIterable(queued.keySet())
+                    .concatWith(this.files.keys())
+                    .filter(key -> !isTemporary(key))
+                    .distinct()
+                    .filter(key -> !queued.containsKey(key) || !queued.get(key).isRemoval());
+        });
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.closeLock.writeLock().lock();
+        try {
+            this.closed = true;
+        } finally {
+            this.closeLock.writeLock().unlock();
+        }
+        synchronized (this.flushLock) {
+            // no flush is running while the lock is held, so disposing cannot interrupt one
+            this.periodicFlush.dispose();
+            this.worker.dispose();
+            flush();
+        }
+        this.files.close();
+    }
+
+    @Override
+    public String toString() {
+        return "WriteBehindRegistry{" +
+                "directory=" + this.directory +
+                ", files=" + this.files +
+                ", bucketFactory=" + this.bucketFactory +
+                ", durability=" + this.durability +
+                ", charset=" + this.charset +
+                ", scheduler=" + this.scheduler +
+                ", flushScheduler=" + this.flushScheduler +
+                ", pending=" + this.pending.size() +
+                ", maxPendingBytes=" + this.maxPendingBytes +
+                ", pendingBytes=" + this.pendingBytes +
+                ", flushOnWrite=" + this.flushOnWrite +
+                ", closed=" + this.closed +
+                "}";
+    }
+}
@@ -0,0 +1,261 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Joao Sousa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.rookit.io.path.registry;
+
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
+import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Function;
+import org.rookit.io.data.DataBucket;
+import org.rookit.io.data.DataMetadata;
+import org.rookit.io.data.DataSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.NoSuchFileException;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.OptionalLong;
+
+/**
+ * A key of a write-behind registry. Reads see the queued write of the key, if any, and the file otherwise. Writes
+ * are buffered until complete and then queued.
+ */
+final class WriteBehindValue implements DataBucket {
+
+    private final WriteBehindRegistry registry;
+    private final String key;
+    private final Charset charset;
+    private final Scheduler scheduler;
+
+    WriteBehindValue(final WriteBehindRegistry registry,
+                     final String key,
+                     final Charset charset,
+                     final Scheduler scheduler) {
+        this.registry = registry;
+        this.key = key;
+        this.charset = charset;
+        this.scheduler = scheduler;
+    }
+
+    private DataBucket file() {
+        return this.registry.bucketFactory().create(this.registry.resolve(this.key));
+    }
+
+    @Override
+    public Scheduler scheduler() {
+        return this.scheduler;
+    }
+
+    @Override
+    public DataMetadata metadata() throws IOException {
+        final PendingWrite write = this.registry.pending(this.key);
+        if (write == null) {
+            return file().metadata();
+        }
+        if (write.isRemoval()) {
+            return DataMetadata.absent();
+        }
+        return DataMetadata.of(OptionalLong.of(write.content().length),
+                Optional.of(Instant.ofEpochMilli(write.timestamp())));
+    }
+
+    @Override
+    public boolean isEmpty() {
+        final PendingWrite write = this.registry.pending(this.key);
+        if (write == null) {
+            return file().isEmpty();
+        }
+        return write.isRemoval() || (write.content().length == 0);
+    }
+
+    @Override
+    public InputStream readFrom() throws IOException {
+        final PendingWrite write = this.registry.pending(this.key);
+        if (write == null) {
+            return file().readFrom();
+        }
+        if (write.isRemoval()) {
+            throw new NoSuchFileException(this.registry.resolve(this.key).toString());
+        }
+        return new ByteArrayInputStream(write.content());
+    }
+
+    @Override
+    public <T> Single<T> readFromWithBuffer(final Function<ByteBuffer, T> function) {
+        return Single.defer(() -> {
+            final PendingWrite write = this.registry.pending(this.key);
+            if (write == null) {
+                return file().readFromWithBuffer(function);
+            }
+            if (write.isRemoval()) {
+                return Single.error(new NoSuchFileException(this.registry.resolve(this.key).toString()));
+            }
+            return Single.fromCallable(() -> function.apply(ByteBuffer.wrap(write.content()).asReadOnlyBuffer()));
+        });
+    }
+
+    @Override
+    public <T> Single<T> readFromWithReader(final Function<Reader, T> function) {
+        return readFrom(inputStream -> {
+            return function.apply(new InputStreamReader(inputStream, this.charset));
+        });
+    }
+
+    @Override
+    public Completable readFromWithReader(final Consumer<Reader> consumer) {
+        return readFrom(inputStream -> {
+            consumer.accept(new InputStreamReader(inputStream, this.charset));
+        });
+    }
+
+    @Override
+    public void clear() {
+        this.registry.enqueue(this.key, null).blockingAwait();
+    }
+
+    @Override
+    public OutputStream writeTo() {
+        return new ByteArrayOutputStream() {
+            private boolean closed;
+
+            @Override
+            public void close() {
+                if (!this.closed) {
+                    this.closed = true;
+                    WriteBehindValue.this.registry.enqueue(WriteBehindValue.this.key, toByteArray()).blockingAwait();
+                }
+            }
+        };
+    }
+
+    @Override
+    public Completable writeTo(final Consumer<OutputStream> consumer) {
+        return writeTo(outputStream -> {
+            consumer.accept(outputStream);
+            return Boolean.TRUE;
+        }).ignoreElement();
+    }
+
+    @Override
+    public <T> Single<T> writeTo(final Function<OutputStream, T> function) {
+        return Single.defer(() -> {
+            // a failed writer leaves nothing behind, the buffer is only published once it is complete
+            final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            final T result = function.apply(buffer);
+            return this.registry.enqueue(this.key, buffer.toByteArray()).toSingleDefault(result);
+        }).subscribeOn(scheduler());
+    }
+
+    @Override
+    public Completable writeToWithWriter(final Consumer<Writer> consumer) {
+        return writeTo(outputStream -> {
+            try (final Writer writer = new OutputStreamWriter(outputStream, this.charset)) {
+                consumer.accept(writer);
+            }
+        });
+    }
+
+    @Override
+    public <T> Single<T> writeToWithWriter(final Function<Writer, T> function) {
+        return writeTo(outputStream -> {
+            try (final Writer writer = new OutputStreamWriter(outputStream, this.charset)) {
+                return function.apply(writer);
+            }
+        });
+    }
+
+    @Override
+    public Completable writeToWithChannel(final Consumer<WritableByteChannel> consumer) {
+        return writeTo(outputStream -> {
+            consumer.accept(Channels.newChannel(outputStream));
+        });
+    }
+
+    @Override
+    public <T> Single<T> writeToWithChannel(final Function<WritableByteChannel, T> function) {
+        return writeTo(outputStream -> {
+            return function.apply(Channels.newChannel(outputStream));
+        });
+    }
+
+    @Override
+    public Completable write(final Flowable<ByteBuffer> buffers) {
+        return Completable.defer(() -> {
+            final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            final WritableByteChannel channel = Channels.newChannel(buffer);
+            return buffers.doOnNext(next -> {
+                while (next.hasRemaining()) {
+                    channel.write(next);
+                }
+            }).ignoreElements()
+                    .andThen(Completable.defer(() -> this.registry.enqueue(this.key, buffer.toByteArray())));
+        }).subscribeOn(scheduler());
+    }
+
+    @Override
+    public Completable writeToWithBuffers(final ByteBuffer... buffers) {
+        return Completable.defer(() -> {
+            int length = 0;
+            for (final ByteBuffer buffer : buffers) {
+                length = Math.addExact(length, buffer.remaining());
+            }
+            final ByteBuffer content = ByteBuffer.allocate(length);
+            for (final ByteBuffer buffer : buffers) {
+                content.put(buffer.duplicate());
+            }
+            return this.registry.enqueue(this.key, content.array());
+        });
+    }
+
+    @Override
+    public Completable copyFrom(final DataSource dataBucket) {
+        return dataBucket.readFromWithBuffer(buffer -> {
+            final byte[] content = new byte[buffer.remaining()];
+            buffer.duplicate().get(content);
+            return content;
+        }).flatMapCompletable(content -> this.registry.enqueue(this.key, content));
+    }
+
+    @Override
+    public String toString() {
+        return "WriteBehindValue{" +
+                "registry=" + this.registry +
+                ", key=" + this.key +
+                ", charset=" + this.charset +
+                ", scheduler=" + this.scheduler +
+                "}";
+    }
+}